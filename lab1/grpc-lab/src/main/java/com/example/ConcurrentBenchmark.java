@@ -0,0 +1,291 @@
+package com.example;
+
+import com.example.grpc.UserServiceGrpc;
+import com.example.grpc.UserServiceProto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Capacity benchmark for REST vs gRPC: keeps N create/get/update/delete sequences in flight at once,
+ * with the gRPC future stub on one channel pool and a pooled async HTTP client for REST, sweeps N and reports
+ * throughput plus p50/p95/p99 per operation type.
+ */
+public class ConcurrentBenchmark {
+
+    enum Operation { CREATE, GET, UPDATE, DELETE }
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String grpcHost;
+    private final int grpcPort;
+    private final String restBaseUrl;
+
+    public ConcurrentBenchmark(String grpcHost, int grpcPort, String restBaseUrl) {
+        this.grpcHost = grpcHost;
+        this.grpcPort = grpcPort;
+        this.restBaseUrl = restBaseUrl;
+    }
+
+    // Latencies of one operation type, sorted once when a percentile is asked for
+    static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int count;
+        private boolean sorted;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+            sorted = false;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized double percentileMillis(double percentile) {
+            if (count == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(samples, 0, count);
+                sorted = true;
+            }
+            int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * count) - 1);
+            return samples[index] / 1_000_000.0;
+        }
+    }
+
+    record Result(String protocol, int concurrency, int sequences, int errors, double seconds,
+                  Map<Operation, LatencyRecorder> latencies) {
+
+        double operationsPerSecond() {
+            return latencies.values().stream().mapToInt(LatencyRecorder::count).sum() / seconds;
+        }
+    }
+
+    public void run(int numUsers, int[] concurrencyLevels) throws InterruptedException {
+        System.out.println("🚀 Concurrent benchmark: " + numUsers + " CRUD sequences per run, concurrency "
+                + Arrays.toString(concurrencyLevels));
+        int warmupUsers = Math.min(numUsers, 50);
+        int maxConcurrency = Arrays.stream(concurrencyLevels).max().orElse(1);
+
+        List<Result> results = new ArrayList<>();
+        GrpcChannelPool channel = GrpcChannelPool.fromEnvironment(grpcHost, grpcPort);
+        try (CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConcurrency)
+                        .setMaxConnPerRoute(maxConcurrency)
+                        .build())
+                .build()) {
+            httpClient.start();
+            UserServiceGrpc.UserServiceFutureStub stub = UserServiceGrpc.newFutureStub(channel);
+
+            System.out.println("🔥 Warming up...");
+            runSequences("REST", warmupUsers, maxConcurrency, latencies -> restSequence(httpClient, latencies));
+            runSequences("gRPC", warmupUsers, maxConcurrency, latencies -> grpcSequence(stub, latencies));
+
+            for (int concurrency : concurrencyLevels) {
+                Result rest = runSequences("REST", numUsers, concurrency,
+                        latencies -> restSequence(httpClient, latencies));
+                Result grpc = runSequences("gRPC", numUsers, concurrency,
+                        latencies -> grpcSequence(stub, latencies));
+                print(rest);
+                print(grpc);
+                results.add(rest);
+                results.add(grpc);
+            }
+        } catch (java.io.IOException e) {
+            System.err.println("❌ Error closing HTTP client: " + e.getMessage());
+        } finally {
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        printSummary(results);
+    }
+
+    // Runs numUsers sequences with at most concurrency of them in flight
+    static Result runSequences(String protocol, int numUsers, int concurrency,
+                                Function<Map<Operation, LatencyRecorder>, CompletableFuture<?>> sequence)
+            throws InterruptedException {
+        Map<Operation, LatencyRecorder> latencies = newRecorders();
+        Semaphore permits = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(numUsers);
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < numUsers; i++) {
+            permits.acquire();
+            sequence.apply(latencies).whenComplete((ignored, error) -> {
+                if (error != null && errors.incrementAndGet() == 1) {
+                    System.err.println(protocol + " request failed: " + error.getMessage());
+                }
+                permits.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return new Result(protocol, concurrency, numUsers, errors.get(), seconds, latencies);
+    }
+
+    static CompletableFuture<?> grpcSequence(UserServiceGrpc.UserServiceFutureStub stub,
+                                              Map<Operation, LatencyRecorder> latencies) {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        return timed(latencies, Operation.CREATE, () -> fromListenable(stub.createUser(
+                UserServiceProto.CreateUserRequest.newBuilder()
+                        .setName("BenchmarkUser" + suffix)
+                        .setEmail("benchmark" + suffix + "@example.com")
+                        .build())))
+                .thenCompose(user -> timed(latencies, Operation.GET, () -> fromListenable(stub.getUser(
+                        UserServiceProto.UserRequest.newBuilder().setId(user.getId()).build())))
+                        .thenApply(ignored -> user.getId()))
+                .thenCompose(id -> timed(latencies, Operation.UPDATE, () -> fromListenable(stub.updateUser(
+                        UserServiceProto.UpdateUserRequest.newBuilder()
+                                .setId(id)
+                                .setName("UpdatedBenchmarkUser" + suffix)
+                                .setEmail("updated" + suffix + "@example.com")
+                                .build())))
+                        .thenApply(ignored -> id))
+                .thenCompose(id -> timed(latencies, Operation.DELETE, () -> fromListenable(stub.deleteUser(
+                        UserServiceProto.UserRequest.newBuilder().setId(id).build()))));
+    }
+
+    private CompletableFuture<?> restSequence(CloseableHttpAsyncClient httpClient,
+                                              Map<Operation, LatencyRecorder> latencies) {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        return timed(latencies, Operation.CREATE, () -> send(httpClient, SimpleRequestBuilder.post(restBaseUrl)
+                .setBody(json(new UserClient.User("BenchmarkUser" + suffix, "benchmark" + suffix + "@example.com")),
+                        ContentType.APPLICATION_JSON)
+                .build()))
+                .thenApply(response -> {
+                    try {
+                        return objectMapper.readValue(response.getBodyText(), UserClient.User.class).id;
+                    } catch (java.io.IOException e) {
+                        throw new IllegalStateException("Unreadable create response", e);
+                    }
+                })
+                .thenCompose(id -> timed(latencies, Operation.GET,
+                        () -> send(httpClient, SimpleRequestBuilder.get(restBaseUrl + "/" + id).build()))
+                        .thenApply(ignored -> id))
+                .thenCompose(id -> timed(latencies, Operation.UPDATE, () -> send(httpClient,
+                        SimpleRequestBuilder.put(restBaseUrl + "/" + id)
+                                .setBody(json(new UserClient.User("UpdatedBenchmarkUser" + suffix,
+                                        "updated" + suffix + "@example.com")), ContentType.APPLICATION_JSON)
+                                .build()))
+                        .thenApply(ignored -> id))
+                .thenCompose(id -> timed(latencies, Operation.DELETE,
+                        () -> send(httpClient, SimpleRequestBuilder.delete(restBaseUrl + "/" + id).build())));
+    }
+
+    // Only successful operations are recorded, so a fast failure cannot flatter the percentiles
+    private static <T> CompletableFuture<T> timed(Map<Operation, LatencyRecorder> latencies, Operation operation,
+                                                  Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        return call.get().thenApply(result -> {
+            latencies.get(operation).record(System.nanoTime() - start);
+            return result;
+        });
+    }
+
+    private static <T> CompletableFuture<T> fromListenable(ListenableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.addListener(() -> {
+            try {
+                result.complete(future.get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            }
+        }, Runnable::run);
+        return result;
+    }
+
+    private static CompletableFuture<SimpleHttpResponse> send(CloseableHttpAsyncClient httpClient,
+                                                              SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> result = new CompletableFuture<>();
+        httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                if (response.getCode() >= 200 && response.getCode() < 300) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(new IllegalStateException(
+                            request.getMethod() + " failed with status: " + response.getCode()));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static String json(UserClient.User user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<Operation, LatencyRecorder> newRecorders() {
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        return recorders;
+    }
+
+    private static void print(Result result) {
+        System.out.printf("%n📈 %s, concurrency %d: %.1f ops/s (%.1f sequences/s), %d errors, %.3f s%n",
+                result.protocol(), result.concurrency(), result.operationsPerSecond(),
+                (result.sequences() - result.errors()) / result.seconds(), result.errors(), result.seconds());
+        for (Operation operation : Operation.values()) {
+            LatencyRecorder latencies = result.latencies().get(operation);
+            System.out.printf("   %-6s p50 %8.3f ms   p95 %8.3f ms   p99 %8.3f ms%n", operation,
+                    latencies.percentileMillis(50), latencies.percentileMillis(95), latencies.percentileMillis(99));
+        }
+    }
+
+    private static void printSummary(List<Result> results) {
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("📊 THROUGHPUT BY CONCURRENCY (ops/s)");
+        System.out.println("=".repeat(50));
+        System.out.printf("%-12s %12s %12s %10s%n", "Concurrency", "REST", "gRPC", "gRPC/REST");
+        for (int i = 0; i + 1 < results.size(); i += 2) {
+            Result rest = results.get(i);
+            Result grpc = results.get(i + 1);
+            System.out.printf("%-12d %12.1f %12.1f %9.2fx%n", rest.concurrency(), rest.operationsPerSecond(),
+                    grpc.operationsPerSecond(), grpc.operationsPerSecond() / rest.operationsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application executor for gRPC call handlers, with load shedding.
+ * <p>
+ * In bounded mode handlers (and their blocking JPA calls) run on a fixed pool of {@code threads}. When
+ * {@code queueCapacity} calls are already waiting for a thread, a new call is failed with {@code RESOURCE_EXHAUSTED}
+ * instead of being queued: the decision is made on the transport thread before the call is dispatched
+ * ({@link ServerCallExecutorSupplier}), and the rejected call never reaches the pool or the service.
+ * Tasks of calls already admitted (further messages, half-close) are always queued.
+ * <p>
+ * With an unbounded executor (virtual threads) every call is admitted; the database pool is then the limit.
+ */
+public class GrpcCallExecutor implements ServerCallExecutorSupplier, ServerInterceptor {
+
+    // Set by getExecutor on the headers of a call to shed; the interceptor then closes it before the handler starts
+    private static final Metadata.Key<String> SHED_KEY = Metadata.Key.of("x-grpc-lab-shed", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final Executor executor;
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+
+    private GrpcCallExecutor(Executor executor, ThreadPoolExecutor pool, int queueCapacity) {
+        this.executor = executor;
+        this.pool = pool;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public static GrpcCallExecutor bounded(int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("grpc-call-"));
+        return new GrpcCallExecutor(pool, pool, queueCapacity);
+    }
+
+    public static GrpcCallExecutor unbounded(Executor executor) {
+        return new GrpcCallExecutor(executor, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata headers) {
+        // The marker is the server's own; never trust one sent by a client
+        headers.discardAll(SHED_KEY);
+        if (pool != null && pool.getQueue().size() >= queueCapacity) {
+            headers.put(SHED_KEY, "queue-full");
+            return MoreExecutors.directExecutor();
+        }
+        return executor;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (headers.containsKey(SHED_KEY)) {
+            headers.discardAll(SHED_KEY);
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription(
+                    "Server overloaded: " + queueCapacity + " calls already waiting for a thread"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return next.startCall(call, headers);
+    }
+
+    int queuedCalls() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    int poolSize() {
+        return pool == null ? 0 : pool.getPoolSize();
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
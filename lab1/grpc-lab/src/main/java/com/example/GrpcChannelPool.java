@@ -0,0 +1,157 @@
+package com.example;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.NameResolverRegistry;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client channel spread over every server replica.
+ * <p>
+ * The target names the replicas: {@code dns:///grpc-lab:50051} (every address the name resolves to, re-resolved
+ * when connections fail) or {@code static:///host1:50051,host2:50052}. Each of the {@code channelsPerBackend}
+ * channels balances calls with {@code round_robin} over one connection (subchannel) per replica, and calls are
+ * spread over the channels in turn, so every replica gets that many HTTP/2 connections and one connection's
+ * concurrent-stream limit no longer caps the client.
+ * <p>
+ * Replicas are health checked with the standard gRPC health service (the server's overall status): one that
+ * reports NOT_SERVING or cannot be reached leaves the rotation until it is healthy again.
+ */
+public class GrpcChannelPool extends Channel {
+
+    private static final Map<String, ?> SERVICE_CONFIG = Map.of(
+            "loadBalancingConfig", List.of(Map.of("round_robin", Map.of())),
+            "healthCheckConfig", Map.of("serviceName", ""));
+
+    static {
+        NameResolverRegistry.getDefaultRegistry().register(new StaticNameResolverProvider());
+    }
+
+    private final List<ManagedChannel> channels;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public GrpcChannelPool(String target, int channelsPerBackend) {
+        channels = new ArrayList<>(channelsPerBackend);
+        for (int i = 0; i < channelsPerBackend; i++) {
+            channels.add(ManagedChannelBuilder.forTarget(target)
+                    .usePlaintext()
+                    .defaultServiceConfig(SERVICE_CONFIG)
+                    .intercept(GrpcCompression.clientInterceptorFromEnvironment())
+                    .build());
+        }
+    }
+
+    /**
+     * Pool configured by {@code GRPC_TARGET} (default {@code dns:///host:port} of the given server) and
+     * {@code GRPC_CHANNELS_PER_BACKEND} (default 2).
+     */
+    public static GrpcChannelPool fromEnvironment(String grpcHost, int grpcPort) {
+        return new GrpcChannelPool(
+                System.getenv().getOrDefault("GRPC_TARGET", "dns:///" + grpcHost + ":" + grpcPort),
+                Integer.parseInt(System.getenv().getOrDefault("GRPC_CHANNELS_PER_BACKEND", "2")));
+    }
+
+    public static String staticTarget(List<String> hostPorts) {
+        return "static:///" + String.join(",", hostPorts);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        int index = Math.floorMod(next.getAndIncrement(), channels.size());
+        return channels.get(index).newCall(method, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    public GrpcChannelPool shutdown() {
+        channels.forEach(ManagedChannel::shutdown);
+        return this;
+    }
+
+    public GrpcChannelPool shutdownNow() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        return this;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // static:///host1:port1,host2:port2 - a fixed list of replicas, for local runs without DNS
+    static final class StaticNameResolverProvider extends NameResolverProvider {
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return "static";
+        }
+
+        @Override
+        public Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+            return List.of(InetSocketAddress.class);
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+            if (!"static".equals(targetUri.getScheme())) {
+                return null;
+            }
+            String hostPorts = targetUri.getPath().substring(1);
+            List<EquivalentAddressGroup> addresses = new ArrayList<>();
+            for (String hostPort : hostPorts.split(",")) {
+                int colon = hostPort.lastIndexOf(':');
+                addresses.add(new EquivalentAddressGroup(new InetSocketAddress(
+                        hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)))));
+            }
+            return new NameResolver() {
+                @Override
+                public String getServiceAuthority() {
+                    return hostPorts.split(",")[0];
+                }
+
+                @Override
+                public void start(Listener2 listener) {
+                    listener.onResult(ResolutionResult.newBuilder().setAddresses(addresses).build());
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+    }
+}
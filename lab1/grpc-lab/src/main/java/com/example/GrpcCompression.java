@@ -0,0 +1,139 @@
+package com.example;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.CompressorRegistry;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+/**
+ * Size-threshold message compression for both ends of a channel.
+ * <p>
+ * The sender names an algorithm for the whole call (the {@code grpc-encoding} header), then decides per message:
+ * only messages whose serialized size reaches {@code minMessageBytes} are compressed, everything else goes out
+ * uncompressed in the same call. A small {@code GetUser} answer stays cheap, a large {@code UserList} is gzipped.
+ * The server only compresses when the client advertised the algorithm in {@code grpc-accept-encoding};
+ * otherwise grpc-java falls back to identity.
+ */
+public final class GrpcCompression {
+
+    public static final String IDENTITY = "identity";
+    public static final String DEFAULT_ALGORITHM = "gzip";
+    public static final int DEFAULT_MIN_MESSAGE_BYTES = 8 * 1024;
+
+    private GrpcCompression() {}
+
+    /**
+     * Client interceptor configured by {@code GRPC_COMPRESSION} (default gzip, {@code identity} turns it off)
+     * and {@code GRPC_COMPRESSION_MIN_BYTES} (default 8192).
+     */
+    public static ClientInterceptor clientInterceptorFromEnvironment() {
+        return clientInterceptorFromEnvironment(CompressorRegistry.getDefaultInstance());
+    }
+
+    /**
+     * As {@link #clientInterceptorFromEnvironment()}, with {@code GRPC_COMPRESSION} looked up in {@code registry}.
+     */
+    public static ClientInterceptor clientInterceptorFromEnvironment(CompressorRegistry registry) {
+        return clientInterceptor(registry,
+                System.getenv().getOrDefault("GRPC_COMPRESSION", DEFAULT_ALGORITHM),
+                Integer.parseInt(System.getenv().getOrDefault("GRPC_COMPRESSION_MIN_BYTES",
+                        String.valueOf(DEFAULT_MIN_MESSAGE_BYTES))));
+    }
+
+    /**
+     * Compresses request messages of at least {@code minMessageBytes} with {@code algorithm}, which must be
+     * in grpc-java's default compressor registry (gzip).
+     */
+    public static ClientInterceptor clientInterceptor(String algorithm, int minMessageBytes) {
+        return clientInterceptor(CompressorRegistry.getDefaultInstance(), algorithm, minMessageBytes);
+    }
+
+    /**
+     * Compresses request messages of at least {@code minMessageBytes} with {@code algorithm}, which must be
+     * in {@code registry}; the channel has to be built with the same registry
+     * ({@code ManagedChannelBuilder.compressorRegistry}).
+     */
+    public static ClientInterceptor clientInterceptor(CompressorRegistry registry, String algorithm, int minMessageBytes) {
+        requireRegistered(registry, algorithm);
+        if (IDENTITY.equals(algorithm)) {
+            return new ClientInterceptor() {
+                @Override
+                public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                           CallOptions callOptions, Channel next) {
+                    return next.newCall(method, callOptions);
+                }
+            };
+        }
+        return new ClientInterceptor() {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                       CallOptions callOptions, Channel next) {
+                ClientCall<ReqT, RespT> call = next.newCall(method, callOptions.withCompression(algorithm));
+                return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+                    @Override
+                    public void sendMessage(ReqT message) {
+                        delegate().setMessageCompression(serializedSize(message) >= minMessageBytes);
+                        super.sendMessage(message);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Compresses response messages of at least {@code minMessageBytes} with {@code algorithm}, which must be
+     * in the server's compressor registry.
+     */
+    public static ServerInterceptor serverInterceptor(CompressorRegistry registry, String algorithm, int minMessageBytes) {
+        requireRegistered(registry, algorithm);
+        if (IDENTITY.equals(algorithm)) {
+            return new ServerInterceptor() {
+                @Override
+                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                             ServerCallHandler<ReqT, RespT> next) {
+                    return next.startCall(call, headers);
+                }
+            };
+        }
+        return new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                    @Override
+                    public void sendHeaders(Metadata responseHeaders) {
+                        // Before the headers go out; ignored for clients that do not accept the algorithm
+                        delegate().setCompression(algorithm);
+                        super.sendHeaders(responseHeaders);
+                    }
+
+                    @Override
+                    public void sendMessage(RespT message) {
+                        delegate().setMessageCompression(serializedSize(message) >= minMessageBytes);
+                        super.sendMessage(message);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    private static void requireRegistered(CompressorRegistry registry, String algorithm) {
+        if (registry.lookupCompressor(algorithm) == null) {
+            throw new IllegalArgumentException("Unknown gRPC compression algorithm: " + algorithm);
+        }
+    }
+
+    private static int serializedSize(Object message) {
+        // Protobuf memoizes the size, so the marshaller does not compute it again
+        return message instanceof MessageLite lite ? lite.getSerializedSize() : 0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example;
+
+import io.grpc.CompressorRegistry;
+import io.grpc.ServerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.grpc.server.GlobalServerInterceptor;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Response compression for the gRPC server ({@link GrpcCompression}), set by
+ * {@code grpc.compression.algorithm} and {@code grpc.compression.min-message-size}.
+ * <p>
+ * The codec registry is the one Spring gRPC builds and installs on the server: gzip and identity, plus every
+ * {@link io.grpc.Compressor} bean (an {@link io.grpc.Codec} such as zstd), which can then be chosen as the algorithm.
+ * An unknown algorithm fails the startup.
+ */
+@Configuration
+public class GrpcCompressionConfig {
+
+    @Bean
+    @GlobalServerInterceptor
+    public ServerInterceptor grpcCompressionInterceptor(
+            CompressorRegistry compressorRegistry,
+            @Value("${grpc.compression.algorithm:gzip}") String algorithm,
+            @Value("${grpc.compression.min-message-size:8KB}") DataSize minMessageSize) {
+        return GrpcCompression.serverInterceptor(compressorRegistry, algorithm, (int) minMessageSize.toBytes());
+    }
+}
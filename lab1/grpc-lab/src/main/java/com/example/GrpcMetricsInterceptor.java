@@ -0,0 +1,164 @@
+package com.example;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.grpc.server.GlobalServerInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-method server metrics for every gRPC service, applied globally by Spring gRPC and published through
+ * Micrometer (/actuator/metrics):
+ * <ul>
+ *   <li>{@code grpc.server.calls}: latency timer tagged with method and status, with a percentile histogram;
+ *       its count per status doubles as the status-code counter</li>
+ *   <li>{@code grpc.server.calls.active}: calls in flight per method</li>
+ *   <li>{@code grpc.server.message.size}: serialized size of each message, tagged received/sent</li>
+ *   <li>{@code grpc.server.message.send}: time spent inside sendMessage, which serializes and frames the response,
+ *       so the rest of a call's latency is handler (database) time</li>
+ * </ul>
+ * Recording uses Micrometer's lock-free meters; the meters of a method are looked up once and cached.
+ */
+@Component
+@GlobalServerInterceptor
+public class GrpcMetricsInterceptor implements ServerInterceptor {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    public GrpcMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private final class MethodMetrics {
+        final String method;
+        final AtomicInteger active = new AtomicInteger();
+        final DistributionSummary received;
+        final DistributionSummary sent;
+        final Timer send;
+        // One timer per status code, created on first use; concurrent creation returns the same registered meter
+        final Timer[] calls = new Timer[Status.Code.values().length];
+
+        MethodMetrics(String method) {
+            this.method = method;
+            Gauge.builder("grpc.server.calls.active", active, AtomicInteger::get)
+                    .tag("method", method)
+                    .register(registry);
+            received = messageSize("received");
+            sent = messageSize("sent");
+            send = Timer.builder("grpc.server.message.send")
+                    .description("Time to serialize and frame one response message")
+                    .tag("method", method)
+                    .register(registry);
+        }
+
+        private DistributionSummary messageSize(String direction) {
+            return DistributionSummary.builder("grpc.server.message.size")
+                    .baseUnit("bytes")
+                    .tag("method", method)
+                    .tag("direction", direction)
+                    .register(registry);
+        }
+
+        Timer calls(Status.Code code) {
+            Timer timer = calls[code.ordinal()];
+            if (timer == null) {
+                timer = Timer.builder("grpc.server.calls")
+                        .tag("method", method)
+                        .tag("status", code.name())
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(registry);
+                calls[code.ordinal()] = timer;
+            }
+            return timer;
+        }
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getFullMethodName();
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(method, MethodMetrics::new);
+        }
+        MeteredCall<ReqT, RespT> meteredCall = new MeteredCall<>(call, metrics);
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(meteredCall, headers);
+        } catch (RuntimeException e) {
+            meteredCall.finish(Status.fromThrowable(e).getCode());
+            throw e;
+        }
+        MethodMetrics methodMetrics = metrics;
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                methodMetrics.received.record(serializedSize(message));
+                super.onMessage(message);
+            }
+
+            // A cancelled call may never be closed by the handler
+            @Override
+            public void onCancel() {
+                meteredCall.finish(Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    private static int serializedSize(Object message) {
+        // Protobuf memoizes the size, and the marshaller needs it anyway
+        return message instanceof MessageLite lite ? lite.getSerializedSize() : 0;
+    }
+
+    private static final class MeteredCall<ReqT, RespT> extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private final MethodMetrics metrics;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        MeteredCall(ServerCall<ReqT, RespT> delegate, MethodMetrics metrics) {
+            super(delegate);
+            this.metrics = metrics;
+            metrics.active.incrementAndGet();
+        }
+
+        @Override
+        public void sendMessage(RespT message) {
+            metrics.sent.record(serializedSize(message));
+            long start = System.nanoTime();
+            super.sendMessage(message);
+            metrics.send.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            finish(status.getCode());
+            super.close(status, trailers);
+        }
+
+        // Records the call once, whichever of close and cancel comes first
+        void finish(Status.Code code) {
+            if (finished.compareAndSet(false, true)) {
+                metrics.active.decrementAndGet();
+                metrics.calls(code).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
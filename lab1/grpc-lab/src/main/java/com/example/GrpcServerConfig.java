@@ -0,0 +1,87 @@
+package com.example;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.grpc.server.GlobalServerInterceptor;
+import org.springframework.grpc.server.ServerBuilderCustomizer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threading and transport limits of the Netty gRPC server, replacing grpc-java's unbounded cached executor:
+ * <ul>
+ *   <li>call handlers run on {@link GrpcCallExecutor}: {@code grpc.server.executor.threads} threads, and calls beyond
+ *       {@code grpc.server.executor.queue-capacity} waiting ones fail with {@code RESOURCE_EXHAUSTED}; with
+ *       {@code spring.threads.virtual.enabled=true} on Java 21+ each call gets a virtual thread instead</li>
+ *   <li>{@code UserOps} operations run on their own {@code grpc.user-ops.threads} threads with at most
+ *       {@code grpc.user-ops.queue-capacity} waiting; one that finds the queue full is answered with a
+ *       {@code RESOURCE_EXHAUSTED} error</li>
+ *   <li>separately sized Netty boss (accept) and worker (HTTP/2 framing) event loops</li>
+ *   <li>{@code maxConcurrentCallsPerConnection} and a fixed HTTP/2 flow-control window</li>
+ * </ul>
+ */
+@Configuration
+public class GrpcServerConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    @GlobalServerInterceptor
+    public GrpcCallExecutor grpcCallExecutor(Environment environment,
+                                             @Value("${grpc.server.executor.threads:32}") int threads,
+                                             @Value("${grpc.server.executor.queue-capacity:200}") int queueCapacity) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return GrpcCallExecutor.unbounded(new VirtualThreadTaskExecutor("grpc-call-"));
+        }
+        return GrpcCallExecutor.bounded(threads, queueCapacity);
+    }
+
+    // 0 threads is twice the number of cores, at least 4; the default AbortPolicy rejects work beyond the queue
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor userOpsExecutor(@Value("${grpc.user-ops.threads:0}") int threads,
+                                              @Value("${grpc.user-ops.queue-capacity:1000}") int queueCapacity) {
+        int size = threads > 0 ? threads : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        return new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("grpc-user-ops-"));
+    }
+
+    @Bean(destroyMethod = "shutdownGracefully")
+    public EventLoopGroup grpcBossEventLoopGroup(@Value("${grpc.server.netty.boss-threads:1}") int threads) {
+        return new NioEventLoopGroup(threads, new CustomizableThreadFactory("grpc-boss-"));
+    }
+
+    // 0 threads is Netty's default, twice the number of cores
+    @Bean(destroyMethod = "shutdownGracefully")
+    public EventLoopGroup grpcWorkerEventLoopGroup(@Value("${grpc.server.netty.worker-threads:0}") int threads) {
+        return new NioEventLoopGroup(threads, new CustomizableThreadFactory("grpc-worker-"));
+    }
+
+    @Bean
+    public ServerBuilderCustomizer<NettyServerBuilder> grpcServerLimitsCustomizer(
+            GrpcCallExecutor grpcCallExecutor,
+            EventLoopGroup grpcBossEventLoopGroup,
+            EventLoopGroup grpcWorkerEventLoopGroup,
+            @Value("${grpc.server.max-concurrent-calls-per-connection:256}") int maxConcurrentCallsPerConnection,
+            @Value("${grpc.server.flow-control-window:1MB}") DataSize flowControlWindow) {
+        return builder -> builder
+                .bossEventLoopGroup(grpcBossEventLoopGroup)
+                .workerEventLoopGroup(grpcWorkerEventLoopGroup)
+                .channelType(NioServerSocketChannel.class)
+                // Only the method lookup and the shedding decision run here, on the event loop
+                .executor(MoreExecutors.directExecutor())
+                .callExecutor(grpcCallExecutor)
+                .maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection)
+                .flowControlWindow((int) flowControlWindow.toBytes());
+    }
+}
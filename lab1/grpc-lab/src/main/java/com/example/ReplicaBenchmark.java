@@ -0,0 +1,88 @@
+package com.example;
+
+import com.example.grpc.UserServiceGrpc;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Horizontal scaling benchmark: starts up to N gRPC server replicas in this JVM on consecutive local ports
+ * (from {@code REPLICA_BASE_PORT}, default 50061), all sharing one H2 database as real replicas share one,
+ * and runs the same concurrent CRUD load through a {@link GrpcChannelPool} over 1, 2, ... N of them.
+ * Every replica has its own call executor, event loops, connection pool and cache, so the throughput per
+ * replica count shows how far spreading the load gets before the shared database or the machine's cores cap it.
+ */
+public class ReplicaBenchmark {
+
+    private static final String SHARED_DATABASE = "jdbc:h2:mem:replicas;DB_CLOSE_DELAY=-1";
+
+    private final int basePort = Integer.parseInt(System.getenv().getOrDefault("REPLICA_BASE_PORT", "50061"));
+    private final int channelsPerBackend = Integer.parseInt(System.getenv().getOrDefault("GRPC_CHANNELS_PER_BACKEND", "2"));
+
+    public void run(int numUsers, int maxReplicas, int concurrency) throws InterruptedException {
+        System.out.println("🚀 Replica benchmark: " + numUsers + " CRUD sequences per run, concurrency " + concurrency
+                + ", 1 to " + maxReplicas + " replicas from port " + basePort
+                + ", " + channelsPerBackend + " connection(s) per replica");
+        List<ConfigurableApplicationContext> replicas = new ArrayList<>();
+        List<String> hostPorts = new ArrayList<>();
+        List<ConcurrentBenchmark.Result> results = new ArrayList<>();
+        try {
+            for (int count = 1; count <= maxReplicas; count++) {
+                int port = basePort + count - 1;
+                System.out.println("🖥️  Starting replica " + count + " on port " + port + "...");
+                replicas.add(startReplica(port));
+                hostPorts.add("localhost:" + port);
+
+                GrpcChannelPool pool = new GrpcChannelPool(GrpcChannelPool.staticTarget(hostPorts), channelsPerBackend);
+                try {
+                    UserServiceGrpc.UserServiceFutureStub stub = UserServiceGrpc.newFutureStub(pool);
+                    ConcurrentBenchmark.runSequences("gRPC", Math.min(numUsers, 50 * count), concurrency,
+                            latencies -> ConcurrentBenchmark.grpcSequence(stub, latencies));
+                    ConcurrentBenchmark.Result result = ConcurrentBenchmark.runSequences("gRPC", numUsers, concurrency,
+                            latencies -> ConcurrentBenchmark.grpcSequence(stub, latencies));
+                    System.out.printf("📈 %d replica(s): %.1f ops/s, %d errors, GET p99 %.3f ms%n", count,
+                            result.operationsPerSecond(), result.errors(),
+                            result.latencies().get(ConcurrentBenchmark.Operation.GET).percentileMillis(99));
+                    results.add(result);
+                } finally {
+                    pool.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            replicas.forEach(ConfigurableApplicationContext::close);
+        }
+        printSummary(results);
+    }
+
+    private static ConfigurableApplicationContext startReplica(int port) {
+        // Command-line arguments, so they win over application.properties
+        return new SpringApplicationBuilder(UserServer.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.grpc.server.port=" + port,
+                        "--spring.datasource.url=" + SHARED_DATABASE,
+                        // The first replica creates the table, the others find it; it goes away with the JVM
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+    }
+
+    private static void printSummary(List<ConcurrentBenchmark.Result> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("📊 gRPC THROUGHPUT BY REPLICA COUNT (ops/s)");
+        System.out.println("=".repeat(50));
+        System.out.printf("%-10s %12s %10s%n", "Replicas", "ops/s", "Speedup");
+        double single = results.get(0).operationsPerSecond();
+        for (int i = 0; i < results.size(); i++) {
+            double throughput = results.get(i).operationsPerSecond();
+            System.out.printf("%-10d %12.1f %9.2fx%n", i + 1, throughput, throughput / single);
+        }
+    }
+}
@@ -2,10 +2,10 @@ package com.example;
 
 import com.example.grpc.UserServiceGrpc;
 import com.example.grpc.UserServiceProto;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
 
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -30,6 +30,7 @@ public class UserClient {
     // Benchmark configuration
     private static final int DEFAULT_NUM_REQUESTS = 100;
     private static final int DEFAULT_WARMUP_REQUESTS = 10;
+    private static final int[] DEFAULT_CONCURRENCY_LEVELS = {1, 8, 32, 128};
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
     // For REST API data model
@@ -51,13 +52,17 @@ public class UserClient {
         this.grpcPort = grpcPort;
         this.restBaseUrl = restBaseUrl;
 
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(grpcHost, grpcPort)
-                .usePlaintext()
-                .build();
+        GrpcChannelPool channel = newChannel();
         this.blockingStub = UserServiceGrpc.newBlockingStub(channel);
         this.scanner = new Scanner(System.in);
     }
 
+    // Round-robin pool over every replica of GRPC_TARGET (GRPC_SERVER_HOST:GRPC_SERVER_PORT by default),
+    // gzipping requests over GRPC_COMPRESSION_MIN_BYTES
+    private GrpcChannelPool newChannel() {
+        return GrpcChannelPool.fromEnvironment(grpcHost, grpcPort);
+    }
+
     public void startInteractiveMode() {
         System.out.println("=== gRPC User Client ===");
         System.out.println("Connected to server successfully!");
@@ -70,7 +75,9 @@ public class UserClient {
         System.out.println("4. delete [id] - Delete user");
         System.out.println("5. list - List all users");
         System.out.println("6. benchmark - Run performance comparison between REST and gRPC");
-        System.out.println("7. exit - Exit client");
+        System.out.println("7. concurrent - Run REST vs gRPC throughput and latency sweep over concurrency levels");
+        System.out.println("8. replicas - Run gRPC throughput as local server replicas are added behind the round-robin pool");
+        System.out.println("9. exit - Exit client");
         System.out.println();
 
         while (true) {
@@ -114,6 +121,12 @@ public class UserClient {
                     case "benchmark":
                         handleBenchmark(parts);
                         break;
+                    case "concurrent":
+                        handleConcurrentBenchmark(parts);
+                        break;
+                    case "replicas":
+                        handleReplicaBenchmark(parts);
+                        break;
                     case "exit":
                     case "quit":
                         System.out.println("Goodbye!");
@@ -169,14 +182,64 @@ public class UserClient {
             System.out.println("\n📊 Benchmarking gRPC...");
             double grpcTime = benchmarkGrpc(numRequests);
 
+            // Benchmark gRPC with every user's CRUD sequence pipelined on one bidirectional stream
+            System.out.println("\n📊 Benchmarking gRPC UserOps stream...");
+            double grpcStreamTime = benchmarkGrpcStream(numRequests);
+
             // Compare results
             printComparisonResults(restTime, grpcTime, numRequests);
+            System.out.printf("gRPC UserOps stream total time: %.3f seconds (%.3f ms per request)%n",
+                    grpcStreamTime, (grpcStreamTime * 1000) / numRequests);
         } catch (Exception e) {
             System.err.println("❌ Benchmark failed: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private void handleConcurrentBenchmark(String[] parts) throws InterruptedException {
+        int numUsers = DEFAULT_NUM_REQUESTS * 10;
+        int[] concurrencyLevels = DEFAULT_CONCURRENCY_LEVELS;
+
+        // Parse optional parameters
+        try {
+            if (parts.length > 1) {
+                numUsers = Integer.parseInt(parts[1]);
+            }
+            if (parts.length > 2) {
+                concurrencyLevels = java.util.Arrays.stream(parts[2].split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: concurrent [num_users] [concurrency_levels, e.g. 1,8,32,128]");
+            return;
+        }
+
+        new ConcurrentBenchmark(grpcHost, grpcPort, restBaseUrl).run(numUsers, concurrencyLevels);
+    }
+
+    private void handleReplicaBenchmark(String[] parts) throws InterruptedException {
+        int numUsers = DEFAULT_NUM_REQUESTS * 10;
+        int maxReplicas = 3;
+        int concurrency = 64;
+
+        // Parse optional parameters
+        try {
+            if (parts.length > 1) {
+                numUsers = Integer.parseInt(parts[1]);
+            }
+            if (parts.length > 2) {
+                maxReplicas = Integer.parseInt(parts[2]);
+            }
+            if (parts.length > 3) {
+                concurrency = Integer.parseInt(parts[3]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: replicas [num_users] [max_replicas] [concurrency]");
+            return;
+        }
+
+        new ReplicaBenchmark().run(numUsers, maxReplicas, concurrency);
+    }
+
     private void warmupRest(int warmupRequests) {
         try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
             for (int i = 0; i < warmupRequests; i++) {
@@ -193,11 +256,9 @@ public class UserClient {
     }
 
     private void warmupGrpc(int warmupRequests) {
-        ManagedChannel channel = null;
+        GrpcChannelPool channel = null;
         try {
-            channel = ManagedChannelBuilder.forAddress(grpcHost, grpcPort)
-                    .usePlaintext()
-                    .build();
+            channel = newChannel();
 
             UserServiceGrpc.UserServiceBlockingStub stub = UserServiceGrpc.newBlockingStub(channel);
 
@@ -296,9 +357,7 @@ public class UserClient {
         AtomicInteger errorCount = new AtomicInteger(0);
 
         // Create new gRPC channel for benchmark to avoid interference
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(grpcHost, grpcPort)
-                .usePlaintext()
-                .build();
+        GrpcChannelPool channel = newChannel();
 
         long startTime = System.nanoTime();
 
@@ -365,6 +424,113 @@ public class UserClient {
         return totalTime;
     }
 
+    // Same create/get/update/delete sequence per user as benchmarkGrpc, but all users run at once on one UserOps
+    // stream: every create is sent up front and each answer triggers that user's next step, so the server
+    // works on many operations concurrently instead of one round trip at a time.
+    // Correlation id = user index * 4 + step
+    private double benchmarkGrpcStream(int numRequests) {
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger errorCount = new AtomicInteger(0);
+        CountDownLatch done = new CountDownLatch(numRequests);
+        String[] userIds = new String[numRequests];
+        Object sendLock = new Object();
+
+        GrpcChannelPool channel = newChannel();
+
+        long startTime = System.nanoTime();
+
+        try {
+            UserServiceGrpc.UserServiceStub stub = UserServiceGrpc.newStub(channel);
+            java.util.concurrent.atomic.AtomicReference<StreamObserver<UserServiceProto.UserOpRequest>> requests =
+                    new java.util.concurrent.atomic.AtomicReference<>();
+            requests.set(stub.userOps(new StreamObserver<UserServiceProto.UserOpResponse>() {
+                @Override
+                public void onNext(UserServiceProto.UserOpResponse response) {
+                    int i = (int) (response.getCorrelationId() / 4);
+                    int step = (int) (response.getCorrelationId() % 4);
+                    if (response.hasError()) {
+                        errorCount.incrementAndGet();
+                        System.err.println("gRPC stream operation failed: " + response.getError());
+                        done.countDown();
+                        return;
+                    }
+                    if (step == 0) {
+                        userIds[i] = response.getUser().getId();
+                    }
+                    if (step == 3) {
+                        int completed = successCount.incrementAndGet();
+                        done.countDown();
+                        if (completed % 10 == 0) {
+                            System.out.println("✅ Completed " + completed + " gRPC stream requests...");
+                        }
+                        return;
+                    }
+                    UserServiceProto.UserOpRequest.Builder next = UserServiceProto.UserOpRequest.newBuilder()
+                            .setCorrelationId(i * 4L + step + 1);
+                    UserServiceProto.UserRequest byId = UserServiceProto.UserRequest.newBuilder()
+                            .setId(userIds[i])
+                            .build();
+                    switch (step) {
+                        case 0 -> next.setGet(byId);
+                        case 1 -> next.setUpdate(UserServiceProto.UpdateUserRequest.newBuilder()
+                                .setId(userIds[i])
+                                .setName("UpdatedBenchmarkUser" + i)
+                                .setEmail("updated" + i + "@example.com"));
+                        default -> next.setDelete(byId);
+                    }
+                    synchronized (sendLock) {
+                        requests.get().onNext(next.build());
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    System.err.println("❌ gRPC stream failed: " + t.getMessage());
+                    while (done.getCount() > 0) {
+                        errorCount.incrementAndGet();
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            }));
+
+            for (int i = 0; i < numRequests; i++) {
+                UserServiceProto.UserOpRequest create = UserServiceProto.UserOpRequest.newBuilder()
+                        .setCorrelationId(i * 4L)
+                        .setCreate(UserServiceProto.CreateUserRequest.newBuilder()
+                                .setName("BenchmarkUser" + i)
+                                .setEmail("benchmark" + i + "@example.com"))
+                        .build();
+                synchronized (sendLock) {
+                    requests.get().onNext(create);
+                }
+            }
+            done.await();
+            synchronized (sendLock) {
+                requests.get().onCompleted();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error during gRPC stream benchmarking: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            try {
+                channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long endTime = System.nanoTime();
+        double totalTime = (endTime - startTime) / 1_000_000_000.0;
+
+        System.out.printf("📈 gRPC stream: %d successes, %d errors%n", successCount.get(), errorCount.get());
+        System.out.printf("⏱️  gRPC stream completed in %.3f seconds%n", totalTime);
+        return totalTime;
+    }
+
     private void printComparisonResults(double restTime, double grpcTime, int numRequests) {
         System.out.println("\n" + "=".repeat(50));
         System.out.println("📊 PERFORMANCE COMPARISON RESULTS");
@@ -540,6 +706,8 @@ public class UserClient {
         System.out.println("  delete [id] - Delete user");
         System.out.println("  list      - List all users");
         System.out.println("  benchmark [num_requests] [warmup_requests] - Run performance comparison");
+        System.out.println("  concurrent [num_users] [levels] - Throughput and p50/p95/p99 at each concurrency level");
+        System.out.println("  replicas [num_users] [max_replicas] [concurrency] - gRPC throughput with 1..max local replicas");
         System.out.println("  exit      - Exit client");
         System.out.println("  help      - Show this help");
     }
@@ -1,14 +1,33 @@
 package com.example;
 import com.example.grpc.UserServiceProto;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.grpc.server.service.GrpcService;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 @GrpcService
 public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserServiceImplBase {
+    private static final int DEFAULT_STREAM_PAGE_SIZE = 100;
+    private static final int MAX_STREAM_PAGE_SIZE = 1000;
+    // Users a BatchCreateUsers stream buffers before persisting them in one transaction
+    private static final int BATCH_CREATE_CHUNK_SIZE = 1000;
+    private static final int MAX_BATCH_GET_IDS = 1000;
+    // Operations one UserOps stream may have running; further requests stay unread until one finishes
+    private static final int MAX_OPS_IN_FLIGHT = 256;
+
+    private final com.example.service.UserService userService;
+    // Runs UserOps operations, so a session's operations overlap instead of queueing on the stream's thread.
+    // Bounded (GrpcServerConfig): an operation it rejects is answered with a RESOURCE_EXHAUSTED error
+    private final Executor opsExecutor;
 
-    @Autowired
-    private com.example.service.UserService userService;
+    public UserServiceGrpcImpl(com.example.service.UserService userService,
+                               @Qualifier("userOpsExecutor") Executor opsExecutor) {
+        this.userService = userService;
+        this.opsExecutor = opsExecutor;
+    }
 
     @Override
     public void getUser(UserServiceProto.UserRequest request,
@@ -16,7 +35,7 @@ public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserSe
         try {
             com.example.model.User user = userService.getUserById(request.getId());
             UserServiceProto.User response = UserServiceProto.User.newBuilder()
-                    .setId(user.getId())
+                    .setId(user.getId().toString())
                     .setName(user.getName())
                     .setEmail(user.getEmail())
                     .build();
@@ -39,7 +58,7 @@ public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserSe
 
             com.example.model.User createdUser = userService.createUser(user);
             UserServiceProto.User response = UserServiceProto.User.newBuilder()
-                    .setId(createdUser.getId())
+                    .setId(createdUser.getId().toString())
                     .setName(createdUser.getName())
                     .setEmail(createdUser.getEmail())
                     .build();
@@ -57,13 +76,12 @@ public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserSe
                            StreamObserver<UserServiceProto.User> responseObserver) {
         try {
             com.example.model.User user = new com.example.model.User();
-            user.setId(request.getId());
             user.setName(request.getName());
             user.setEmail(request.getEmail());
 
             com.example.model.User updatedUser = userService.updateUser(request.getId(), user);
             UserServiceProto.User response = UserServiceProto.User.newBuilder()
-                    .setId(updatedUser.getId())
+                    .setId(updatedUser.getId().toString())
                     .setName(updatedUser.getName())
                     .setEmail(updatedUser.getEmail())
                     .build();
@@ -95,18 +113,114 @@ public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserSe
                           StreamObserver<UserServiceProto.UserList> responseObserver) {
         try {
             java.util.List<com.example.model.User> users = userService.getAllUsers();
-            UserServiceProto.UserList.Builder userListBuilder = UserServiceProto.UserList.newBuilder();
-
-            for (com.example.model.User user : users) {
-                UserServiceProto.User grpcUser = UserServiceProto.User.newBuilder()
-                        .setId(user.getId())
-                        .setName(user.getName())
-                        .setEmail(user.getEmail())
-                        .build();
-                userListBuilder.addUsers(grpcUser);
+            responseObserver.onNext(toGrpcUserList(users));
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            responseObserver.onError(io.grpc.Status.INTERNAL
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
+        }
+    }
+
+    @Override
+    public void streamUsers(UserServiceProto.StreamUsersRequest request,
+                            StreamObserver<UserServiceProto.User> responseObserver) {
+        int pageSize = request.getPageSize() <= 0 ? DEFAULT_STREAM_PAGE_SIZE
+                : Math.min(request.getPageSize(), MAX_STREAM_PAGE_SIZE);
+        ServerCallStreamObserver<UserServiceProto.User> serverObserver =
+                (ServerCallStreamObserver<UserServiceProto.User>) responseObserver;
+        UserStreamPump pump = new UserStreamPump(serverObserver, request.getAfterId(), pageSize);
+        serverObserver.setOnCancelHandler(pump::cancel);
+        // gRPC runs the handler whenever the stream turns ready, including once after this method returns
+        serverObserver.setOnReadyHandler(pump);
+    }
+
+    @Override
+    public StreamObserver<UserServiceProto.CreateUserRequest> batchCreateUsers(
+            StreamObserver<UserServiceProto.BatchCreateUsersResponse> responseObserver) {
+        // gRPC delivers one message at a time, so this state needs no locking
+        return new StreamObserver<>() {
+            private final java.util.List<com.example.model.User> pending = new java.util.ArrayList<>();
+            private final UserServiceProto.BatchCreateUsersResponse.Builder response =
+                    UserServiceProto.BatchCreateUsersResponse.newBuilder();
+            private int nextIndex;
+
+            @Override
+            public void onNext(UserServiceProto.CreateUserRequest request) {
+                com.example.model.User user = new com.example.model.User();
+                user.setName(request.getName());
+                user.setEmail(request.getEmail());
+                pending.add(user);
+                if (pending.size() >= BATCH_CREATE_CHUNK_SIZE) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // The client gave up; chunks already committed stay, the rest is dropped
+                pending.clear();
             }
 
-            responseObserver.onNext(userListBuilder.build());
+            @Override
+            public void onCompleted() {
+                flush();
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            }
+
+            // A chunk commits or rolls back as a whole, so a database error fails every user in it
+            private void flush() {
+                if (pending.isEmpty()) return;
+                java.util.List<com.example.service.UserService.ItemResult> results;
+                try {
+                    results = userService.createUsers(pending);
+                } catch (Exception e) {
+                    results = java.util.Collections.nCopies(pending.size(),
+                            com.example.service.UserService.ItemResult.failed(e.getMessage()));
+                }
+                // Only failures are kept: created users are counted, not listed
+                for (com.example.service.UserService.ItemResult result : results) {
+                    int index = nextIndex++;
+                    if (result.isOk()) {
+                        response.setCreated(response.getCreated() + 1);
+                    } else {
+                        response.setFailed(response.getFailed() + 1);
+                        response.addFailures(UserServiceProto.CreateUserFailure.newBuilder()
+                                .setIndex(index)
+                                .setError(String.valueOf(result.error())));
+                    }
+                }
+                pending.clear();
+            }
+        };
+    }
+
+    @Override
+    public void batchGetUsers(UserServiceProto.BatchGetUsersRequest request,
+                              StreamObserver<UserServiceProto.BatchGetUsersResponse> responseObserver) {
+        if (request.getIdsCount() > MAX_BATCH_GET_IDS) {
+            responseObserver.onError(io.grpc.Status.INVALID_ARGUMENT
+                    .withDescription("At most " + MAX_BATCH_GET_IDS + " ids per request")
+                    .asRuntimeException());
+            return;
+        }
+        try {
+            java.util.List<com.example.service.UserService.ItemResult> results =
+                    userService.getUsersByIds(request.getIdsList());
+            UserServiceProto.BatchGetUsersResponse.Builder response = UserServiceProto.BatchGetUsersResponse.newBuilder();
+            for (int i = 0; i < results.size(); i++) {
+                com.example.service.UserService.ItemResult result = results.get(i);
+                UserServiceProto.GetUserResult.Builder item =
+                        UserServiceProto.GetUserResult.newBuilder().setId(request.getIds(i));
+                if (result.isOk()) {
+                    item.setUser(toGrpcUser(result.user()));
+                } else {
+                    item.setError(result.error());
+                }
+                response.addResults(item);
+            }
+            responseObserver.onNext(response.build());
             responseObserver.onCompleted();
         } catch (Exception e) {
             responseObserver.onError(io.grpc.Status.INTERNAL
@@ -114,4 +228,188 @@ public class UserServiceGrpcImpl extends com.example.grpc.UserServiceGrpc.UserSe
                     .asRuntimeException());
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public StreamObserver<UserServiceProto.UserOpRequest> userOps(
+            StreamObserver<UserServiceProto.UserOpResponse> responseObserver) {
+        return new UserOpsSession((ServerCallStreamObserver<UserServiceProto.UserOpResponse>) responseObserver);
+    }
+
+    private UserServiceProto.UserOpResponse executeOp(UserServiceProto.UserOpRequest request) {
+        UserServiceProto.UserOpResponse.Builder response = UserServiceProto.UserOpResponse.newBuilder()
+                .setCorrelationId(request.getCorrelationId());
+        try {
+            switch (request.getOpCase()) {
+                case CREATE -> {
+                    com.example.model.User user = new com.example.model.User();
+                    user.setName(request.getCreate().getName());
+                    user.setEmail(request.getCreate().getEmail());
+                    response.setUser(toGrpcUser(userService.createUser(user)));
+                }
+                case GET -> response.setUser(toGrpcUser(userService.getUserById(request.getGet().getId())));
+                case UPDATE -> {
+                    com.example.model.User user = new com.example.model.User();
+                    user.setName(request.getUpdate().getName());
+                    user.setEmail(request.getUpdate().getEmail());
+                    response.setUser(toGrpcUser(userService.updateUser(request.getUpdate().getId(), user)));
+                }
+                case DELETE -> {
+                    userService.deleteUser(request.getDelete().getId());
+                    response.setDeleted(UserServiceProto.Empty.getDefaultInstance());
+                }
+                case OP_NOT_SET -> response.setError("No operation set");
+            }
+        } catch (Exception e) {
+            response.setError(String.valueOf(e.getMessage()));
+        }
+        return response.build();
+    }
+
+    // One UserOps stream. Inbound flow control is manual: MAX_OPS_IN_FLIGHT requests are read up front and one
+    // more each time an answer is sent, held back while the client is not reading, so a session never queues
+    // unbounded work or unbounded responses. Answers go out under the session lock, as observers are not thread-safe
+    private class UserOpsSession implements StreamObserver<UserServiceProto.UserOpRequest> {
+        private final ServerCallStreamObserver<UserServiceProto.UserOpResponse> responses;
+        private int inFlight;
+        private int owedRequests;
+        private boolean halfClosed;
+        private boolean finished;
+
+        UserOpsSession(ServerCallStreamObserver<UserServiceProto.UserOpResponse> responses) {
+            this.responses = responses;
+            responses.disableAutoRequest();
+            responses.setOnReadyHandler(this::onReady);
+            responses.setOnCancelHandler(this::onCancel);
+            responses.request(MAX_OPS_IN_FLIGHT);
+        }
+
+        @Override
+        public void onNext(UserServiceProto.UserOpRequest request) {
+            synchronized (this) {
+                inFlight++;
+            }
+            try {
+                opsExecutor.execute(() -> complete(executeOp(request)));
+            } catch (RejectedExecutionException e) {
+                // Every worker is busy and the queue is full: fail this operation now, the stream carries on
+                complete(UserServiceProto.UserOpResponse.newBuilder()
+                        .setCorrelationId(request.getCorrelationId())
+                        .setError(io.grpc.Status.Code.RESOURCE_EXHAUSTED + ": server overloaded, operation not run")
+                        .build());
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            finished = true;
+        }
+
+        // The client sent its last operation; the stream ends once every answer is out
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            if (inFlight == 0) {
+                finish();
+            }
+        }
+
+        private synchronized void complete(UserServiceProto.UserOpResponse response) {
+            inFlight--;
+            if (finished) return;
+            responses.onNext(response);
+            if (halfClosed) {
+                if (inFlight == 0) {
+                    finish();
+                }
+            } else if (responses.isReady()) {
+                responses.request(1);
+            } else {
+                owedRequests++;
+            }
+        }
+
+        private synchronized void onReady() {
+            if (owedRequests > 0 && !finished) {
+                responses.request(owedRequests);
+                owedRequests = 0;
+            }
+        }
+
+        private synchronized void onCancel() {
+            finished = true;
+        }
+
+        private void finish() {
+            finished = true;
+            responses.onCompleted();
+        }
+    }
+
+    // Entity-to-proto mapping; package-private so the jmh-lab benchmarks measure this code rather than a copy
+    static UserServiceProto.User toGrpcUser(com.example.model.User user) {
+        return UserServiceProto.User.newBuilder()
+                .setId(user.getId().toString())
+                .setName(user.getName())
+                .setEmail(user.getEmail())
+                .build();
+    }
+
+    static UserServiceProto.UserList toGrpcUserList(java.util.List<com.example.model.User> users) {
+        UserServiceProto.UserList.Builder userListBuilder = UserServiceProto.UserList.newBuilder();
+        for (com.example.model.User user : users) {
+            userListBuilder.addUsers(toGrpcUser(user));
+        }
+        return userListBuilder.build();
+    }
+
+    // Sends users while the transport can take them and returns as soon as it cannot; gRPC runs the pump
+    // again once the client has read enough, so at most one page is in memory whatever the table size
+    private class UserStreamPump implements Runnable {
+        private final ServerCallStreamObserver<UserServiceProto.User> observer;
+        private final int pageSize;
+        private String cursor;
+        private java.util.Iterator<com.example.model.User> page = java.util.Collections.emptyIterator();
+        private boolean lastPage;
+        private boolean done;
+        private volatile boolean cancelled;
+
+        UserStreamPump(ServerCallStreamObserver<UserServiceProto.User> observer, String afterId, int pageSize) {
+            this.observer = observer;
+            this.cursor = afterId;
+            this.pageSize = pageSize;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (done) return;
+            try {
+                while (!cancelled && observer.isReady()) {
+                    if (page.hasNext()) {
+                        com.example.model.User user = page.next();
+                        cursor = user.getId().toString();
+                        observer.onNext(toGrpcUser(user));
+                    } else if (lastPage) {
+                        done = true;
+                        observer.onCompleted();
+                        return;
+                    } else {
+                        java.util.List<com.example.model.User> users = userService.getUsersAfter(cursor, pageSize);
+                        lastPage = users.size() < pageSize;
+                        page = users.iterator();
+                    }
+                }
+            } catch (Exception e) {
+                done = true;
+                if (!cancelled) {
+                    observer.onError(io.grpc.Status.INTERNAL
+                            .withDescription(e.getMessage())
+                            .asRuntimeException());
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.repository;
 import com.example.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.UUID;
+
 /**
  * @Author : Ze Li
  * @Date : 25/09/2025 21:24
@@ -11,5 +15,8 @@ import org.springframework.stereotype.Repository;
  */
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, UUID> {
+    // Keyset page: seeks past the last id instead of counting an OFFSET, so every page costs the same.
+    // Binary UUIDv7 ids sort by creation time, so pages come out oldest first
+    List<User> findByIdGreaterThanOrderByIdAsc(UUID afterId, Limit limit);
 }
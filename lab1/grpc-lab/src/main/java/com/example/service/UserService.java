@@ -3,21 +3,79 @@ package com.example.service;
 import com.example.model.User;
 import com.example.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    // Bounded Caffeine cache by id (size and TTL in application.properties); reads far outnumber writes,
+    // so hot ids skip the Hibernate session and the database round trip
+    public static final String USERS_CACHE = "users";
+
     private final UserRepository userRepository;
 
+    // Outcome of one item of a batch call: the user, or why that item failed
+    public record ItemResult(User user, String error) {
+        public static ItemResult ok(User user) {
+            return new ItemResult(user, null);
+        }
+
+        public static ItemResult failed(String error) {
+            return new ItemResult(null, error);
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+    }
+
+    // Ids travel as strings; one that is not a UUID cannot name a user
+    static Optional<UUID> parseId(String id) {
+        try {
+            return id == null ? Optional.empty() : Optional.of(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static UUID existingId(String id) {
+        return parseId(id).orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+
+    // Cache key of an id: its canonical UUID form, so every spelling of one id ("ABC..." and "abc...") shares
+    // one entry and an update or delete through either spelling reaches it. Ids that are not UUIDs are kept as given
+    public static String cacheKey(String id) {
+        return parseId(id).map(UUID::toString).orElse(String.valueOf(id));
+    }
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    // Up to limit users with an id greater than afterId, in id order; pass the last id back for the next page
+    public List<User> getUsersAfter(String afterId, int limit) {
+        UUID after = afterId == null || afterId.isEmpty() ? new UUID(0, 0)
+                : parseId(afterId).orElseThrow(() -> new IllegalArgumentException("Invalid after_id"));
+        return userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+    }
+
+    // sync: concurrent misses for one id load it once; a missing user is not cached
+    @Cacheable(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)", sync = true)
     public User getUserById(String id) {
-        return userRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("User not found"));
+        return userRepository.findById(existingId(id)).orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
     public User createUser(User user) {
@@ -28,21 +86,59 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    // One transaction for the whole list: valid users are persisted together and flushed as JDBC batch inserts,
+    // invalid ones are reported without failing the rest. Results are in input order
+    @Transactional
+    public List<ItemResult> createUsers(List<User> users) {
+        List<ItemResult> results = new ArrayList<>(users.size());
+        List<User> valid = new ArrayList<>(users.size());
+        for (User user : users) {
+            user.setId(null);
+            if (user.getName() == null || user.getEmail() == null) {
+                results.add(ItemResult.failed("Invalid user data"));
+            } else {
+                valid.add(user);
+                results.add(ItemResult.ok(user));
+            }
+        }
+        // persist() assigns the UUID straight away, so the results above already carry their ids
+        userRepository.saveAll(valid);
+        return results;
+    }
+
+    // One IN query instead of a lookup per id; results follow the order of ids
+    @Transactional(readOnly = true)
+    public List<ItemResult> getUsersByIds(List<String> ids) {
+        Map<UUID, User> found = userRepository.findAllById(ids.stream().map(UserService::parseId)
+                        .flatMap(Optional::stream).toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<ItemResult> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            User user = parseId(id).map(found::get).orElse(null);
+            results.add(user != null ? ItemResult.ok(user) : ItemResult.failed("User not found"));
+        }
+        return results;
+    }
+
+    // Write-through: the saved user replaces the cached one, so readers never see the old value after an update
+    @CachePut(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)")
     public User updateUser(String id, User user) {
-        user.setId(id);
-        if (user.getId() == null || user.getName() == null || user.getEmail() == null) {
+        if (id == null || user.getName() == null || user.getEmail() == null) {
             throw new IllegalArgumentException("Invalid user data");
         }
-        if (!userRepository.existsById(id)) {
+        user.setId(existingId(id));
+        if (!userRepository.existsById(user.getId())) {
             throw new IllegalArgumentException("User not found");
         }
         return userRepository.save(user);
     }
 
+    @CacheEvict(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)")
     public void deleteUser(String id) {
-        if (!userRepository.existsById(id)) {
+        UUID uuid = existingId(id);
+        if (!userRepository.existsById(uuid)) {
             throw new IllegalArgumentException("User not found");
         }
-        userRepository.deleteById(id);
+        userRepository.deleteById(uuid);
     }
 }
@@ -3,11 +3,22 @@ package com.example;
 import com.example.grpc.UserServiceProto;
 import com.example.model.User;
 import com.example.service.UserService;
+import io.grpc.CompressorRegistry;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
 import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.health.v1.HealthCheckResponse;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.protobuf.services.HealthStatusManager;
+import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,10 +33,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -35,6 +50,12 @@ public class GrpcTest {
     @Autowired
     private UserServiceGrpcImpl userServiceGrpc;
 
+    @Autowired
+    private GrpcMetricsInterceptor metricsInterceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoBean
     private UserService userService;
 
@@ -45,6 +66,12 @@ public class GrpcTest {
 
     private final String serverName = "test-server";
 
+    // Ids of the mocked users; the service takes and the API returns them as strings
+    private static final String ID_1 = "00000000-0000-7000-8000-000000000001";
+    private static final String ID_2 = "00000000-0000-7000-8000-000000000002";
+    private static final String ID_3 = "00000000-0000-7000-8000-000000000003";
+    private static final String SLOW_ID = "00000000-0000-7000-8000-000000000004";
+
     @BeforeEach
     void setUp() throws Exception {
         reset(userService);
@@ -75,20 +102,20 @@ public class GrpcTest {
 
     private void setupNormalMockBehavior() {
         // Mock data
-        User user1 = createUser("1", "John Doe", "john@example.com");
-        User user2 = createUser("2", "Jane Smith", "jane@example.com");
+        User user1 = createUser(ID_1, "John Doe", "john@example.com");
+        User user2 = createUser(ID_2, "Jane Smith", "jane@example.com");
         List<User> userList = Arrays.asList(user1, user2);
 
         // Mock method behaviors
-        when(userService.getUserById("1")).thenReturn(user1);
-        when(userService.getUserById("2")).thenReturn(user2);
+        when(userService.getUserById(ID_1)).thenReturn(user1);
+        when(userService.getUserById(ID_2)).thenReturn(user2);
         when(userService.getUserById("999")).thenThrow(new RuntimeException("User not found"));
 
         when(userService.getAllUsers()).thenReturn(userList);
 
         when(userService.createUser(any(User.class))).thenAnswer(invocation -> {
             User user = invocation.getArgument(0);
-            return createUser("3", user.getName(), user.getEmail());
+            return createUser(ID_3, user.getName(), user.getEmail());
         });
 
         when(userService.updateUser(any(String.class), any(User.class))).thenAnswer(invocation -> {
@@ -97,14 +124,14 @@ public class GrpcTest {
             return createUser(id, user.getName(), user.getEmail());
         });
 
-        doNothing().when(userService).deleteUser("1");
-        doNothing().when(userService).deleteUser("2");
+        doNothing().when(userService).deleteUser(ID_1);
+        doNothing().when(userService).deleteUser(ID_2);
         doThrow(new RuntimeException("User not found")).when(userService).deleteUser("999");
     }
 
     private User createUser(String id, String name, String email) {
         User user = new User();
-        user.setId(id);
+        user.setId(java.util.UUID.fromString(id));
         user.setName(name);
         user.setEmail(email);
         return user;
@@ -117,11 +144,11 @@ public class GrpcTest {
     void testGetUser_Success() {
         // When
         UserServiceProto.User response = blockingStub.getUser(
-                UserServiceProto.UserRequest.newBuilder().setId("1").build());
+                UserServiceProto.UserRequest.newBuilder().setId(ID_1).build());
 
         // Then
         assertNotNull(response);
-        assertEquals("1", response.getId());
+        assertEquals(ID_1, response.getId());
         assertEquals("John Doe", response.getName());
         assertEquals("john@example.com", response.getEmail());
     }
@@ -140,7 +167,7 @@ public class GrpcTest {
 
         // Then
         assertNotNull(response);
-        assertEquals("3", response.getId());
+        assertEquals(ID_3, response.getId());
         assertEquals("New User", response.getName());
         assertEquals("new@example.com", response.getEmail());
     }
@@ -150,7 +177,7 @@ public class GrpcTest {
     void testUpdateUser_Success() {
         // Given
         UserServiceProto.UpdateUserRequest request = UserServiceProto.UpdateUserRequest.newBuilder()
-                .setId("1")
+                .setId(ID_1)
                 .setName("Updated Name")
                 .setEmail("updated@example.com")
                 .build();
@@ -160,7 +187,7 @@ public class GrpcTest {
 
         // Then
         assertNotNull(response);
-        assertEquals("1", response.getId());
+        assertEquals(ID_1, response.getId());
         assertEquals("Updated Name", response.getName());
         assertEquals("updated@example.com", response.getEmail());
     }
@@ -171,10 +198,10 @@ public class GrpcTest {
         // When & Then - should not throw exception
         assertDoesNotThrow(() -> {
             blockingStub.deleteUser(
-                    UserServiceProto.UserRequest.newBuilder().setId("1").build());
+                    UserServiceProto.UserRequest.newBuilder().setId(ID_1).build());
         });
 
-        verify(userService, times(1)).deleteUser("1");
+        verify(userService, times(1)).deleteUser(ID_1);
     }
 
     @Test
@@ -189,12 +216,12 @@ public class GrpcTest {
         assertEquals(2, response.getUsersCount());
 
         UserServiceProto.User user1 = response.getUsers(0);
-        assertEquals("1", user1.getId());
+        assertEquals(ID_1, user1.getId());
         assertEquals("John Doe", user1.getName());
         assertEquals("john@example.com", user1.getEmail());
 
         UserServiceProto.User user2 = response.getUsers(1);
-        assertEquals("2", user2.getId());
+        assertEquals(ID_2, user2.getId());
         assertEquals("Jane Smith", user2.getName());
         assertEquals("jane@example.com", user2.getEmail());
     }
@@ -260,13 +287,13 @@ public class GrpcTest {
     void testDataSerialization_UserList() {
         // Given
         UserServiceProto.User user1 = UserServiceProto.User.newBuilder()
-                .setId("1")
+                .setId(ID_1)
                 .setName("User 1")
                 .setEmail("user1@test.com")
                 .build();
 
         UserServiceProto.User user2 = UserServiceProto.User.newBuilder()
-                .setId("2")
+                .setId(ID_2)
                 .setName("User 2")
                 .setEmail("user2@test.com")
                 .build();
@@ -477,4 +504,476 @@ public class GrpcTest {
         assertNotNull(error);
         assertTrue(error.getMessage().contains("Database connection failed"));
     }
-}
\ No newline at end of file
+
+    // ========== STREAMING TESTS ==========
+
+    @Test
+    @Order(15)
+    void testStreamUsers_PagesWithCursor() {
+        // Given - one user per page, so every page after the first starts from the previous id
+        User user1 = createUser(ID_1, "John Doe", "john@example.com");
+        User user2 = createUser(ID_2, "Jane Smith", "jane@example.com");
+        when(userService.getUsersAfter("", 1)).thenReturn(List.of(user1));
+        when(userService.getUsersAfter(ID_1, 1)).thenReturn(List.of(user2));
+        when(userService.getUsersAfter(ID_2, 1)).thenReturn(List.of());
+
+        // When
+        List<UserServiceProto.User> streamed = new java.util.ArrayList<>();
+        blockingStub.streamUsers(UserServiceProto.StreamUsersRequest.newBuilder().setPageSize(1).build())
+                .forEachRemaining(streamed::add);
+
+        // Then
+        assertEquals(2, streamed.size());
+        assertEquals("John Doe", streamed.get(0).getName());
+        assertEquals("Jane Smith", streamed.get(1).getName());
+        verify(userService, times(3)).getUsersAfter(any(String.class), eq(1));
+    }
+
+    @Test
+    @Order(16)
+    void testStreamUsers_ServiceError() {
+        // Given
+        when(userService.getUsersAfter(any(String.class), anyInt()))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        // When
+        io.grpc.StatusRuntimeException error = assertThrows(io.grpc.StatusRuntimeException.class, () ->
+                blockingStub.streamUsers(UserServiceProto.StreamUsersRequest.newBuilder().build()).hasNext());
+
+        // Then
+        assertTrue(error.getMessage().contains("Database connection failed"));
+    }
+
+    // ========== BATCH TESTS ==========
+
+    @Test
+    @Order(17)
+    void testBatchCreateUsers_CountsAndReportsFailures() throws InterruptedException {
+        // Given - the second user is rejected by the service, the others are created
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            List<UserService.ItemResult> results = new java.util.ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                results.add(user.getEmail().isEmpty()
+                        ? UserService.ItemResult.failed("Invalid user data")
+                        : UserService.ItemResult.ok(createUser(String.format("00000000-0000-7000-8000-%012d", 100 + i), user.getName(), user.getEmail())));
+            }
+            return results;
+        });
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<UserServiceProto.BatchCreateUsersResponse> responseRef = new AtomicReference<>();
+
+        // When
+        StreamObserver<UserServiceProto.CreateUserRequest> requests = asyncStub.batchCreateUsers(
+                new StreamObserver<UserServiceProto.BatchCreateUsersResponse>() {
+                    @Override
+                    public void onNext(UserServiceProto.BatchCreateUsersResponse value) {
+                        responseRef.set(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        latch.countDown();
+                    }
+                });
+        requests.onNext(UserServiceProto.CreateUserRequest.newBuilder().setName("A").setEmail("a@example.com").build());
+        requests.onNext(UserServiceProto.CreateUserRequest.newBuilder().setName("B").setEmail("").build());
+        requests.onNext(UserServiceProto.CreateUserRequest.newBuilder().setName("C").setEmail("c@example.com").build());
+        requests.onCompleted();
+
+        // Then - one transaction for the three users; only the failed one is listed
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        UserServiceProto.BatchCreateUsersResponse response = responseRef.get();
+        assertNotNull(response);
+        assertEquals(2, response.getCreated());
+        assertEquals(1, response.getFailed());
+        assertEquals(1, response.getFailuresCount());
+        assertEquals(1, response.getFailures(0).getIndex());
+        assertEquals("Invalid user data", response.getFailures(0).getError());
+        verify(userService, times(1)).createUsers(anyList());
+    }
+
+    @Test
+    @Order(18)
+    void testBatchGetUsers_ReportsMissingIds() {
+        // Given
+        when(userService.getUsersByIds(List.of(ID_1, "999"))).thenReturn(List.of(
+                UserService.ItemResult.ok(createUser(ID_1, "John Doe", "john@example.com")),
+                UserService.ItemResult.failed("User not found")));
+
+        // When
+        UserServiceProto.BatchGetUsersResponse response = blockingStub.batchGetUsers(
+                UserServiceProto.BatchGetUsersRequest.newBuilder().addIds(ID_1).addIds("999").build());
+
+        // Then
+        assertEquals(2, response.getResultsCount());
+        assertEquals("John Doe", response.getResults(0).getUser().getName());
+        assertEquals("999", response.getResults(1).getId());
+        assertEquals("User not found", response.getResults(1).getError());
+    }
+
+    @Test
+    @Order(19)
+    void testUserOps_AnswersEveryOperationByCorrelationId() throws InterruptedException {
+        // Given
+        CountDownLatch latch = new CountDownLatch(1);
+        java.util.Map<Long, UserServiceProto.UserOpResponse> responses = new java.util.concurrent.ConcurrentHashMap<>();
+
+        // When - several operations pipelined on one stream
+        StreamObserver<UserServiceProto.UserOpRequest> requests = asyncStub.userOps(
+                new StreamObserver<UserServiceProto.UserOpResponse>() {
+                    @Override
+                    public void onNext(UserServiceProto.UserOpResponse value) {
+                        responses.put(value.getCorrelationId(), value);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        latch.countDown();
+                    }
+                });
+        requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(1)
+                .setCreate(UserServiceProto.CreateUserRequest.newBuilder().setName("New User").setEmail("new@example.com"))
+                .build());
+        requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(2)
+                .setGet(UserServiceProto.UserRequest.newBuilder().setId(ID_1)).build());
+        requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(3)
+                .setUpdate(UserServiceProto.UpdateUserRequest.newBuilder().setId(ID_2).setName("Jane").setEmail("j@example.com"))
+                .build());
+        requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(4)
+                .setDelete(UserServiceProto.UserRequest.newBuilder().setId(ID_1)).build());
+        requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(5)
+                .setGet(UserServiceProto.UserRequest.newBuilder().setId("999")).build());
+        requests.onCompleted();
+
+        // Then - the stream completes only after every operation was answered, errors included
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(5, responses.size());
+        assertEquals(ID_3, responses.get(1L).getUser().getId());
+        assertEquals("John Doe", responses.get(2L).getUser().getName());
+        assertEquals("Jane", responses.get(3L).getUser().getName());
+        assertTrue(responses.get(4L).hasDeleted());
+        assertTrue(responses.get(5L).getError().contains("User not found"));
+    }
+
+    @Test
+    @Order(20)
+    void testMetricsInterceptor_RecordsLatencyStatusAndSizes() throws Exception {
+        // Given - the service behind the global metrics interceptor, as the Spring gRPC server runs it
+        Server meteredServer = InProcessServerBuilder.forName("metered-server")
+                .addService(ServerInterceptors.intercept(userServiceGrpc, metricsInterceptor))
+                .build()
+                .start();
+        ManagedChannel meteredChannel = InProcessChannelBuilder.forName("metered-server").build();
+        try {
+            com.example.grpc.UserServiceGrpc.UserServiceBlockingStub stub =
+                    com.example.grpc.UserServiceGrpc.newBlockingStub(meteredChannel);
+
+            // When
+            stub.getUser(UserServiceProto.UserRequest.newBuilder().setId(ID_1).build());
+            assertThrows(io.grpc.StatusRuntimeException.class,
+                    () -> stub.getUser(UserServiceProto.UserRequest.newBuilder().setId("999").build()));
+
+            // Then
+            String method = "UserService/GetUser";
+            assertEquals(1, meterRegistry.get("grpc.server.calls").tag("method", method).tag("status", "OK").timer().count());
+            assertEquals(1, meterRegistry.get("grpc.server.calls").tag("method", method).tag("status", "INTERNAL").timer().count());
+            assertEquals(0, meterRegistry.get("grpc.server.calls.active").tag("method", method).gauge().value());
+            assertEquals(2, meterRegistry.get("grpc.server.message.size").tag("method", method)
+                    .tag("direction", "received").summary().count());
+            assertTrue(meterRegistry.get("grpc.server.message.size").tag("method", method)
+                    .tag("direction", "sent").summary().totalAmount() > 0);
+        } finally {
+            meteredChannel.shutdownNow();
+            meteredServer.shutdownNow();
+        }
+    }
+
+    @Test
+    @Order(21)
+    void testCompression_GzipsMessagesOverThreshold() throws Exception {
+        // Given - server and client compressing every message of at least 1 byte, recording the headers each side receives
+        Metadata.Key<String> encoding = Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER);
+        AtomicReference<String> requestEncoding = new AtomicReference<>();
+        ServerInterceptor captureRequestHeaders = new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                requestEncoding.set(headers.get(encoding));
+                return next.startCall(call, headers);
+            }
+        };
+        Server compressedServer = InProcessServerBuilder.forName("compressed-server")
+                .addService(ServerInterceptors.intercept(userServiceGrpc,
+                        GrpcCompression.serverInterceptor(CompressorRegistry.getDefaultInstance(), "gzip", 1),
+                        captureRequestHeaders))
+                .build()
+                .start();
+        AtomicReference<Metadata> responseHeaders = new AtomicReference<>();
+        AtomicReference<Metadata> trailers = new AtomicReference<>();
+        ManagedChannel compressedChannel = InProcessChannelBuilder.forName("compressed-server")
+                .intercept(MetadataUtils.newCaptureMetadataInterceptor(responseHeaders, trailers),
+                        GrpcCompression.clientInterceptor("gzip", 1))
+                .build();
+        try {
+            // When
+            UserServiceProto.UserList response = com.example.grpc.UserServiceGrpc.newBlockingStub(compressedChannel)
+                    .listUsers(UserServiceProto.Empty.newBuilder().build());
+
+            // Then
+            assertEquals(2, response.getUsersCount());
+            assertEquals("gzip", requestEncoding.get());
+            assertEquals("gzip", responseHeaders.get().get(encoding));
+        } finally {
+            compressedChannel.shutdownNow();
+            compressedServer.shutdownNow();
+        }
+    }
+
+    @Test
+    @Order(22)
+    void testCompression_RejectsUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> GrpcCompression.clientInterceptor("zstd", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> GrpcCompression.serverInterceptor(CompressorRegistry.getDefaultInstance(), "zstd", 1));
+
+        // A codec registered in the client's own registry is accepted
+        CompressorRegistry clientRegistry = CompressorRegistry.newEmptyInstance();
+        clientRegistry.register(new io.grpc.Compressor() {
+            @Override
+            public String getMessageEncoding() {
+                return "zstd";
+            }
+
+            @Override
+            public java.io.OutputStream compress(java.io.OutputStream os) {
+                return os;
+            }
+        });
+        assertNotNull(GrpcCompression.clientInterceptor(clientRegistry, "zstd", 1));
+    }
+
+    @Test
+    @Order(23)
+    void testCallExecutor_ShedsLoadWhenQueueIsFull() throws Exception {
+        // Given - one handler thread and room for one waiting call; getting the slow user holds the thread until released
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        User slowUser = createUser(SLOW_ID, "Slow User", "slow@example.com");
+        when(userService.getUserById(SLOW_ID)).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return slowUser;
+        });
+        GrpcCallExecutor callExecutor = GrpcCallExecutor.bounded(1, 1);
+        Server saturatedServer = InProcessServerBuilder.forName("saturated-server")
+                .executor(com.google.common.util.concurrent.MoreExecutors.directExecutor())
+                .callExecutor(callExecutor)
+                .addService(ServerInterceptors.intercept(userServiceGrpc, callExecutor))
+                .build()
+                .start();
+        ManagedChannel saturatedChannel = InProcessChannelBuilder.forName("saturated-server").build();
+        try {
+            com.example.grpc.UserServiceGrpc.UserServiceFutureStub stub =
+                    com.example.grpc.UserServiceGrpc.newFutureStub(saturatedChannel);
+            UserServiceProto.UserRequest slow = UserServiceProto.UserRequest.newBuilder().setId(SLOW_ID).build();
+
+            // When - the first call takes the thread, the second waits, the third finds the queue full
+            var first = stub.getUser(slow);
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            var second = stub.getUser(slow);
+            for (int i = 0; i < 500 && callExecutor.queuedCalls() < 1; i++) {
+                Thread.sleep(10);
+            }
+            io.grpc.StatusRuntimeException shed = assertThrows(io.grpc.StatusRuntimeException.class,
+                    () -> com.example.grpc.UserServiceGrpc.newBlockingStub(saturatedChannel).getUser(slow));
+            release.countDown();
+
+            // Then - the admitted calls complete, the shed one never reached the service, and the pool did not grow
+            assertEquals(io.grpc.Status.Code.RESOURCE_EXHAUSTED, shed.getStatus().getCode());
+            assertEquals(SLOW_ID, first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(SLOW_ID, second.get(5, TimeUnit.SECONDS).getId());
+            verify(userService, times(2)).getUserById(SLOW_ID);
+            assertEquals(1, callExecutor.poolSize());
+        } finally {
+            release.countDown();
+            saturatedChannel.shutdownNow();
+            saturatedServer.shutdownNow();
+            callExecutor.shutdown();
+        }
+    }
+
+    @Test
+    @Order(24)
+    void testChannelPool_RoundRobinsAndEvictsUnhealthyReplica() throws Exception {
+        // Given - two replicas on local ports, each with the gRPC health service and a call counter
+        AtomicInteger[] calls = {new AtomicInteger(), new AtomicInteger()};
+        HealthStatusManager[] health = {new HealthStatusManager(), new HealthStatusManager()};
+        Server[] replicas = new Server[2];
+        List<String> hostPorts = new java.util.ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            AtomicInteger counter = calls[i];
+            ServerInterceptor countCalls = new ServerInterceptor() {
+                @Override
+                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                             ServerCallHandler<ReqT, RespT> next) {
+                    counter.incrementAndGet();
+                    return next.startCall(call, headers);
+                }
+            };
+            replicas[i] = NettyServerBuilder.forPort(0)
+                    .addService(ServerInterceptors.intercept(userServiceGrpc, countCalls))
+                    .addService(health[i].getHealthService())
+                    .build()
+                    .start();
+            hostPorts.add("localhost:" + replicas[i].getPort());
+        }
+        GrpcChannelPool pool = new GrpcChannelPool(GrpcChannelPool.staticTarget(hostPorts), 2);
+        try {
+            com.example.grpc.UserServiceGrpc.UserServiceBlockingStub stub =
+                    com.example.grpc.UserServiceGrpc.newBlockingStub(pool);
+            UserServiceProto.UserRequest request = UserServiceProto.UserRequest.newBuilder().setId(ID_1).build();
+
+            // When - both replicas are healthy
+            for (int i = 0; i < 20; i++) {
+                assertEquals(ID_1, stub.withWaitForReady().getUser(request).getId());
+            }
+
+            // Then - calls are spread over both
+            assertTrue(calls[0].get() > 0 && calls[1].get() > 0,
+                    "calls per replica: " + calls[0].get() + ", " + calls[1].get());
+
+            // When - the second replica reports NOT_SERVING
+            health[1].setStatus("", HealthCheckResponse.ServingStatus.NOT_SERVING);
+            Thread.sleep(500);
+            int before = calls[1].get();
+            for (int i = 0; i < 20; i++) {
+                assertEquals(ID_1, stub.getUser(request).getId());
+            }
+
+            // Then - it is out of the rotation
+            assertEquals(before, calls[1].get());
+        } finally {
+            pool.shutdownNow();
+            for (Server replica : replicas) {
+                replica.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    @Order(25)
+    void testUuidV7Generator_TimeOrderedAndUnique() throws Exception {
+        // Given
+        org.springframework.util.IdGenerator generator = com.example.model.ConfiguredUuidGenerator.create("uuid7");
+        java.util.Set<java.util.UUID> ids = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+        // When - four threads draw ids at once
+        Thread[] threads = new Thread[4];
+        AtomicInteger outOfOrder = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                java.util.UUID previous = new java.util.UUID(0, 0);
+                for (int i = 0; i < 10_000; i++) {
+                    java.util.UUID id = generator.generateId();
+                    // Binary order, as the database compares the 16-byte key
+                    if (Long.compareUnsigned(id.getMostSignificantBits(), previous.getMostSignificantBits()) <= 0) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    ids.add(id);
+                    previous = id;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(40_000, ids.size());
+        assertEquals(0, outOfOrder.get());
+        java.util.UUID id = ids.iterator().next();
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue(Math.abs((id.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60_000);
+        assertEquals(4, com.example.model.ConfiguredUuidGenerator.create("random").generateId().version());
+    }
+
+    @Test
+    @Order(26)
+    void testUserOps_RejectsOperationsBeyondQueueCapacity() throws Exception {
+        // Given - one worker and room for one waiting operation; getting the slow user holds the worker until released
+        CountDownLatch release = new CountDownLatch(1);
+        User slowUser = createUser(SLOW_ID, "Slow User", "slow@example.com");
+        when(userService.getUserById(SLOW_ID)).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return slowUser;
+        });
+        java.util.concurrent.ThreadPoolExecutor opsExecutor = new java.util.concurrent.ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS, new java.util.concurrent.ArrayBlockingQueue<>(1));
+        Server opsServer = InProcessServerBuilder.forName("ops-overload-server")
+                .addService(new UserServiceGrpcImpl(userService, opsExecutor))
+                .build()
+                .start();
+        ManagedChannel opsChannel = InProcessChannelBuilder.forName("ops-overload-server").build();
+        try {
+            CountDownLatch rejected = new CountDownLatch(1);
+            CountDownLatch latch = new CountDownLatch(1);
+            java.util.Map<Long, UserServiceProto.UserOpResponse> responses = new java.util.concurrent.ConcurrentHashMap<>();
+
+            // When - the first operation takes the worker, the second waits, the third finds the queue full
+            StreamObserver<UserServiceProto.UserOpRequest> requests = com.example.grpc.UserServiceGrpc.newStub(opsChannel)
+                    .userOps(new StreamObserver<UserServiceProto.UserOpResponse>() {
+                        @Override
+                        public void onNext(UserServiceProto.UserOpResponse value) {
+                            responses.put(value.getCorrelationId(), value);
+                            if (value.hasError()) {
+                                rejected.countDown();
+                            }
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            latch.countDown();
+                        }
+                    });
+            for (long id = 1; id <= 3; id++) {
+                requests.onNext(UserServiceProto.UserOpRequest.newBuilder().setCorrelationId(id)
+                        .setGet(UserServiceProto.UserRequest.newBuilder().setId(SLOW_ID)).build());
+            }
+            requests.onCompleted();
+
+            // Then - the rejected operation is answered at once, the stream stays open and the others complete
+            assertTrue(rejected.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(3, responses.size());
+            assertEquals(SLOW_ID, responses.get(1L).getUser().getId());
+            assertEquals(SLOW_ID, responses.get(2L).getUser().getId());
+            assertTrue(responses.get(3L).getError().startsWith("RESOURCE_EXHAUSTED"));
+            verify(userService, times(2)).getUserById(SLOW_ID);
+        } finally {
+            release.countDown();
+            opsChannel.shutdownNow();
+            opsServer.shutdownNow();
+            opsExecutor.shutdown();
+        }
+    }
+}
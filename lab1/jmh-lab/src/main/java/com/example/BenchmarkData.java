@@ -0,0 +1,26 @@
+package com.example;
+
+import com.example.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Same shape of data the labs store: a UUID id plus a short name and email
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static User user(int i) {
+        return new User(UUID.nameUUIDFromBytes(("user-" + i).getBytes()), "User " + i, "user" + i + "@example.com");
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example;
+
+import com.example.grpc.UserServiceProto;
+import com.example.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-to-proto mapping done by {@link UserServiceGrpcImpl} before every response: one user,
+ * and the {@code UserList} that ListUsers builds from the whole table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrpcMappingBenchmark {
+
+    private static final User user = BenchmarkData.user(0);
+
+    @State(Scope.Benchmark)
+    public static class UserList {
+        @Param({"1", "10", "100", "1000"})
+        int size;
+
+        List<User> entities;
+
+        @Setup
+        public void setUp() {
+            entities = BenchmarkData.users(size);
+        }
+    }
+
+    @Benchmark
+    public UserServiceProto.User toGrpcUser() {
+        return UserServiceGrpcImpl.toGrpcUser(user);
+    }
+
+    @Benchmark
+    public UserServiceProto.UserList toGrpcUserList(UserList state) {
+        return UserServiceGrpcImpl.toGrpcUserList(state.entities);
+    }
+}
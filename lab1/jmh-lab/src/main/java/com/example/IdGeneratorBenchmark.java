@@ -0,0 +1,38 @@
+package com.example;
+
+import com.example.model.ConfiguredUuidGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.IdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one id from the generators {@code app.id-generator} selects, with 4 threads sharing one generator as
+ * concurrent inserts do: {@code uuid7} (a CAS on one counter and {@code ThreadLocalRandom})
+ * against {@code random} (v4 UUIDs from the JDK's shared {@code SecureRandom}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    @Param({"uuid7", "random"})
+    String generator;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setUp() {
+        idGenerator = ConfiguredUuidGenerator.create(generator);
+    }
+
+    @Benchmark
+    public UUID generateId() {
+        return idGenerator.generateId();
+    }
+}
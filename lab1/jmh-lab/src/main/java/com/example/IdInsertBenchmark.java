@@ -0,0 +1,115 @@
+package com.example;
+
+import com.example.model.ConfiguredUuidGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.IdGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of the users table by primary key: {@code rows} rows (10 million by default) inserted in JDBC
+ * batches of {@value #BATCH_SIZE} into an empty, file-backed H2 table, once per iteration.
+ * <ul>
+ *   <li>{@code uuid7-binary}: grpc-lab's default, time-ordered UUIDv7 in a {@code BINARY(16)} key</li>
+ *   <li>{@code random-binary}: random v4 UUIDs ({@code app.id-generator=random}) in the same key</li>
+ *   <li>{@code random-string}: the old mapping, random v4 UUIDs as 36-character {@code VARCHAR} keys</li>
+ * </ul>
+ * Random keys land on any page of the primary key B-tree, so the cost per row grows with the table; v7 keys are
+ * appended at its right edge. The database file size after each iteration is printed to compare key widths.
+ * Rows per second is {@code rows} divided by the reported time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdInsertBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+
+    @Param({"uuid7-binary", "random-binary", "random-string"})
+    String key;
+
+    @Param({"10000000"})
+    int rows;
+
+    private IdGenerator generator;
+    private boolean binary;
+    private Path directory;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUpGenerator() {
+        generator = ConfiguredUuidGenerator.create(key.startsWith("uuid7") ? "uuid7" : "random");
+        binary = key.endsWith("binary");
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpTable() throws IOException, SQLException {
+        directory = Files.createTempDirectory("id-insert-");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("users"), "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id " + (binary ? "BINARY(16)" : "VARCHAR(36)")
+                    + " PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL)");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownTable() throws IOException, SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // Writes out everything still in the cache, so the file size is the table's
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+        long bytes = Files.size(directory.resolve("users.mv.db"));
+        System.out.printf("%n%s: %d rows, database file %.1f MB (%.1f bytes/row)%n",
+                key, rows, bytes / 1048576.0, (double) bytes / rows);
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void insertRows() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (id, name, email) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                UUID id = generator.generateId();
+                if (binary) {
+                    insert.setBytes(1, toBytes(id));
+                } else {
+                    insert.setString(1, id.toString());
+                }
+                insert.setString(2, "User " + i);
+                insert.setString(3, "user" + i + "@example.com");
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    // Same big-endian layout Hibernate binds for a UUID mapped as SqlTypes.BINARY
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example;
+
+import com.example.grpc.UserServiceProto;
+import com.example.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire format cost: protobuf {@code User}/{@code UserList} against Jackson JSON of the {@code User} entity,
+ * encode and decode, for one user and for lists of growing size. Run with {@code -prof gc} for bytes allocated per op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    // Readers and writers are built once, as a long-running service would keep them
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectWriter userWriter = objectMapper.writerFor(User.class);
+    private static final ObjectReader userReader = objectMapper.readerFor(User.class);
+    private static final ObjectWriter listWriter = objectMapper.writerFor(
+            objectMapper.getTypeFactory().constructCollectionType(List.class, User.class));
+    private static final ObjectReader listReader = objectMapper.readerForListOf(User.class);
+
+    @State(Scope.Benchmark)
+    public static class SingleUser {
+        User entity;
+        UserServiceProto.User proto;
+        byte[] protoBytes;
+        byte[] jsonBytes;
+
+        @Setup
+        public void setUp() throws IOException {
+            entity = BenchmarkData.user(0);
+            proto = UserServiceGrpcImpl.toGrpcUser(entity);
+            protoBytes = proto.toByteArray();
+            jsonBytes = userWriter.writeValueAsBytes(entity);
+            System.out.printf("%nOne user: protobuf %d bytes, JSON %d bytes%n", protoBytes.length, jsonBytes.length);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UserList {
+        @Param({"1", "10", "100", "1000"})
+        int size;
+
+        List<User> entities;
+        UserServiceProto.UserList proto;
+        byte[] protoBytes;
+        byte[] jsonBytes;
+
+        @Setup
+        public void setUp() throws IOException {
+            entities = BenchmarkData.users(size);
+            proto = UserServiceGrpcImpl.toGrpcUserList(entities);
+            protoBytes = proto.toByteArray();
+            jsonBytes = listWriter.writeValueAsBytes(entities);
+            System.out.printf("%n%d users: protobuf %d bytes, JSON %d bytes%n", size, protoBytes.length, jsonBytes.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] protobufEncodeUser(SingleUser state) {
+        return state.proto.toByteArray();
+    }
+
+    @Benchmark
+    public UserServiceProto.User protobufDecodeUser(SingleUser state) throws IOException {
+        return UserServiceProto.User.parseFrom(state.protoBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeUser(SingleUser state) throws IOException {
+        return userWriter.writeValueAsBytes(state.entity);
+    }
+
+    @Benchmark
+    public User jsonDecodeUser(SingleUser state) throws IOException {
+        return userReader.readValue(state.jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] protobufEncodeList(UserList state) {
+        return state.proto.toByteArray();
+    }
+
+    @Benchmark
+    public UserServiceProto.UserList protobufDecodeList(UserList state) throws IOException {
+        return UserServiceProto.UserList.parseFrom(state.protoBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeList(UserList state) throws IOException {
+        return listWriter.writeValueAsBytes(state.entities);
+    }
+
+    @Benchmark
+    public List<User> jsonDecodeList(UserList state) throws IOException {
+        return listReader.readValue(state.jsonBytes);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example;
+
+import com.example.model.User;
+import com.example.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserService} CRUD through Spring Data JPA against the in-memory H2 database grpc-lab runs on,
+ * with a table of {@value #TABLE_SIZE} users. The gRPC server is not started, so only the service and data layers are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+
+    static final int TABLE_SIZE = 1000;
+
+    // "caffeine" is the configured users cache in front of getUserById, "none" sends every read to the database
+    @Param({"caffeine", "none"})
+    String cache;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private List<String> ids;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserServer.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.grpc.server.enabled=false",
+                        "spring.jpa.show-sql=false",
+                        "spring.cache.type=" + cache,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        userService = context.getBean(UserService.class);
+        ids = userService.createUsers(BenchmarkData.users(TABLE_SIZE)).stream()
+                .map(result -> result.user().getId().toString())
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userService.getUserById(randomId());
+    }
+
+    @Benchmark
+    public User updateUser() {
+        String id = randomId();
+        return userService.updateUser(id, new User(null, "Updated " + id, id + "@example.com"));
+    }
+
+    // Create and delete together keep the table at TABLE_SIZE rows for the whole run
+    @Benchmark
+    public void createAndDeleteUser() {
+        User created = userService.createUser(new User(null, "New User", "new@example.com"));
+        userService.deleteUser(created.getId().toString());
+    }
+
+    @Benchmark
+    public List<User> getAllUsers() {
+        return userService.getAllUsers();
+    }
+}
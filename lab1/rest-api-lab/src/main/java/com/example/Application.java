@@ -1,8 +1,15 @@
 package com.example;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+// Caching advice wraps the transaction: @CachePut on UserService.updateUser stores the user only after the
+// update has committed, so a rolled-back version never reaches the cache (and the ETags served from it)
 @SpringBootApplication
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+@EnableTransactionManagement(proxyTargetClass = true, order = Ordered.LOWEST_PRECEDENCE)
 public class Application {
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
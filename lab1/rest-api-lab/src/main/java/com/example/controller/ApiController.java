@@ -1,11 +1,24 @@
 package com.example.controller;
 
 import com.example.model.User;
+import com.example.repository.UserViews;
 import com.example.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequiredArgsConstructor
@@ -13,17 +26,48 @@ import java.util.List;
 public class ApiController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
-    @GetMapping
+    // Whole table in one response; kept for existing clients, any paging parameter selects getUsersPage instead
+    @GetMapping(params = {"!limit", "!after", "!fields"})
     @ResponseStatus(HttpStatus.OK)
     public List<User> getUsers() {
         return userService.getAllUsers();
     }
 
+    // Keyset page: {"users": [...], "next": "<id>"}; pass next back as after for the following page (null on the last one).
+    // Rows are written as they are read, and fields=id,name selects and returns only those columns
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getUsersPage(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String after,
+                                                              @RequestParam(required = false) String fields) {
+        int pageSize = userService.pageSize(limit);
+        Class<? extends UserViews.Id> view = userService.viewFor(fields);
+        UUID cursor = userService.cursor(after);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("users");
+                String next = userService.forEachUserAfter(cursor, pageSize, view, row -> {
+                    try {
+                        generator.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+                generator.writeStringField("next", next);
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Strong ETag from the version; on a matching If-None-Match Spring answers 304 without serializing the user
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public User getUser(@PathVariable String id) {
-        return userService.getUserById(id);
+    public ResponseEntity<User> getUser(@PathVariable String id) {
+        User user = userService.getUserById(id);
+        return ResponseEntity.ok().eTag(etag(user)).body(user);
     }
 
     @PostMapping
@@ -32,10 +76,39 @@ public class ApiController {
         return userService.createUser(user);
     }
 
+    // If-Match with the ETag of a GET makes the update conditional: 412 when the user changed in between
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public User updateUser(@PathVariable String id, @RequestBody User user) {
-        return userService.updateUser(id, user);
+    public ResponseEntity<User> updateUser(@PathVariable String id, @RequestBody User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updated = userService.updateUser(id, user, expectedVersions(ifMatch));
+        return ResponseEntity.ok().eTag(etag(updated)).body(updated);
+    }
+
+    private static String etag(User user) {
+        return "\"" + user.getVersion() + "\"";
+    }
+
+    // null for no If-Match or "*" (any current version), otherwise the version of every tag in the list ("3", "4").
+    // Weak and foreign tags can never match, so they are skipped; when none is left it fails right away
+    private static List<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String part : ifMatch.split(",")) {
+            String tag = part.trim();
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current version");
+        }
+        return versions;
     }
 
     @DeleteMapping("/{id}")
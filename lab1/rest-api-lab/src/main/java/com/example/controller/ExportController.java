@@ -0,0 +1,51 @@
+package com.example.controller;
+
+import com.example.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/users")
+public class ExportController {
+    // Rows written between flushes once the export is under way
+    private static final int FLUSH_EVERY = 1000;
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    // Whole table as newline-delimited JSON, one user per line, written while rows are read:
+    // memory stays constant and the first line goes out as soon as the first row is fetched
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // The newline is the only separator; Jackson would otherwise put a space before every root value
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                userService.forEachUser(user -> {
+                    try {
+                        generator.writeObject(user);
+                        generator.writeRaw('\n');
+                        if (++written[0] == 1 || written[0] % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.model;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.IdGenerator;
+import org.springframework.util.JdkIdGenerator;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Hibernate side of {@link GeneratedUuid}: picks the id generator once, when the entity is mapped.
+ * {@code app.id-generator} is {@code uuid7} (default, {@link UuidV7Generator}), {@code random}
+ * (random v4 UUIDs from {@code SecureRandom}, the old {@code GenerationType.UUID} behaviour)
+ * or the class name of any other {@link IdGenerator}.
+ */
+public class ConfiguredUuidGenerator implements BeforeExecutionGenerator, AnnotationBasedGenerator<GeneratedUuid> {
+
+    public static final String SETTING = "app.id-generator";
+
+    private IdGenerator generator;
+
+    // Instantiated through Spring's bean container, so configured here rather than in a constructor
+    @Override
+    public void initialize(GeneratedUuid config, Member member, GeneratorCreationContext context) {
+        Object setting = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(SETTING);
+        this.generator = create(setting == null ? "uuid7" : setting.toString().trim());
+    }
+
+    public static IdGenerator create(String name) {
+        return switch (name) {
+            case "uuid7" -> new UuidV7Generator();
+            case "random" -> new JdkIdGenerator();
+            default -> BeanUtils.instantiateClass(
+                    ClassUtils.resolveClassName(name, ConfiguredUuidGenerator.class.getClassLoader()), IdGenerator.class);
+        };
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return generator.generateId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
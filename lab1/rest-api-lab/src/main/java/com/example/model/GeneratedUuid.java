@@ -0,0 +1,18 @@
+package com.example.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * UUID id assigned by the {@link org.springframework.util.IdGenerator} named in the {@code app.id-generator}
+ * Hibernate setting ({@code spring.jpa.properties.app.id-generator}), see {@link ConfiguredUuidGenerator}.
+ */
+@IdGeneratorType(ConfiguredUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface GeneratedUuid {
+}
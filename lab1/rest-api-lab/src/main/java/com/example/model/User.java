@@ -1,10 +1,15 @@
 package com.example.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
 
 @Entity
 @NoArgsConstructor
@@ -13,11 +18,18 @@ import lombok.Setter;
 @Setter
 @Table(name = "users")
 public class User {
+    // 16-byte binary key instead of a 36-character string; time-ordered (UUIDv7) by default, see GeneratedUuid
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @GeneratedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
     @Column(name = "name", nullable = false)
     private String name;
     @Column(name = "email", nullable = false)
     private String email;
+    // Optimistic lock, bumped on every update; clients see it as the ETag rather than in the body
+    @Version
+    @JsonIgnore
+    private Long version;
 }
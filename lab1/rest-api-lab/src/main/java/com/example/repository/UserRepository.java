@@ -1,8 +1,19 @@
 package com.example.repository;
 import com.example.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 /**
  * @Author : Ze Li
  * @Date : 25/09/2025 21:24
@@ -11,5 +22,31 @@ import org.springframework.stereotype.Repository;
  */
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, UUID> {
+
+    // Keyset page: up to limit rows with an id after the cursor, in id order, read as the given UserViews projection.
+    // Seeks on the primary key index, so a page costs the same wherever it is in the table.
+    // UUIDv7 ids sort by creation time, so pages come in insertion order
+    <T> Stream<T> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit, Class<T> type);
+
+    // Every user as a cursor-backed stream: rows are fetched from JDBC in batches of 500 and loaded read-only,
+    // so Hibernate keeps no dirty-checking snapshots. Must be consumed inside a transaction and closed
+    @Query("select u from User u order by u.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamAllByOrderByIdAsc();
+
+    // Existence check and update in one statement: 0 rows means there is no such user
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.name = :name, u.email = :email, u.version = u.version + 1 where u.id = :id")
+    int updateNameAndEmail(@Param("id") UUID id, @Param("name") String name, @Param("email") String email);
+
+    // Conditional update for If-Match: 0 rows means the user is gone or its version is none of the listed ones
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.name = :name, u.email = :email, u.version = u.version + 1 "
+            + "where u.id = :id and u.version in :versions")
+    int updateNameAndEmailIfVersionIn(@Param("id") UUID id, @Param("name") String name,
+                                      @Param("email") String email, @Param("versions") Collection<Long> versions);
 }
@@ -0,0 +1,29 @@
+package com.example.repository;
+
+import java.util.UUID;
+
+/**
+ * Closed interface projections of {@link com.example.model.User} for list endpoints: Spring Data selects
+ * only the columns a view declares and returns plain read-only rows instead of managed entities.
+ * Every view carries the id, which is also the keyset cursor.
+ */
+public final class UserViews {
+
+    private UserViews() {
+    }
+
+    public interface Id {
+        UUID getId();
+    }
+
+    public interface IdName extends Id {
+        String getName();
+    }
+
+    public interface IdEmail extends Id {
+        String getEmail();
+    }
+
+    public interface Full extends IdName, IdEmail {
+    }
+}
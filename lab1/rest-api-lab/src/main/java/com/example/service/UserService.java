@@ -2,24 +2,118 @@ package com.example.service;
 
 import com.example.model.User;
 import com.example.repository.UserRepository;
+import com.example.repository.UserViews;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    // Bounded Caffeine cache by id (size and TTL in application.properties); reads far outnumber writes,
+    // so hot ids skip the Hibernate session and the database round trip
+    public static final String USERS_CACHE = "users";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    public int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    // Projection for a fields list such as "id,name"; the id is always included because it is the page cursor
+    public Class<? extends UserViews.Id> viewFor(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return UserViews.Full.class;
+        }
+        boolean name = false;
+        boolean email = false;
+        for (String field : fields.split(",")) {
+            switch (field.trim()) {
+                case "id" -> { }
+                case "name" -> name = true;
+                case "email" -> email = true;
+                default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field.trim());
+            }
+        }
+        if (name && email) {
+            return UserViews.Full.class;
+        }
+        return name ? UserViews.IdName.class : email ? UserViews.IdEmail.class : UserViews.Id.class;
+    }
+
+    // Keyset cursor from the after parameter: the smallest id when absent, 400 when it is not an id
+    public UUID cursor(String after) {
+        if (after == null || after.isEmpty()) {
+            return new UUID(0, 0);
+        }
+        return parseId(after)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid after cursor"));
+    }
+
+    // Hands each user of one keyset page to action as it is read from the result stream and returns the cursor of
+    // the next page, or null after the last one. The transaction keeps the stream open while the caller writes rows out
+    @Transactional(readOnly = true)
+    public String forEachUserAfter(UUID after, int limit, Class<? extends UserViews.Id> view,
+                                   Consumer<UserViews.Id> action) {
+        UUID last = null;
+        int count = 0;
+        try (Stream<? extends UserViews.Id> rows =
+                     userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit), view)) {
+            Iterator<? extends UserViews.Id> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                UserViews.Id row = iterator.next();
+                action.accept(row);
+                last = row.getId();
+                count++;
+            }
+        }
+        return count == limit ? last.toString() : null;
+    }
+
+    // Hands every user to action in id order, one at a time, and detaches it afterwards, so the persistence context
+    // (which open-in-view keeps for the whole request) stays empty and memory does not grow with the table
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<User> action) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            users.forEach(user -> {
+                action.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    // sync: concurrent misses for one id load it once; a missing user is not cached
+    @Cacheable(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)", sync = true)
     public User getUserById(String id) {
-        return userRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        return userRepository.findById(existingId(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
 
     public User createUser(User user) {
@@ -30,21 +124,65 @@ public class UserService {
         return userRepository.save(user);
     }
 
-    public User updateUser(String id, User user) {
-        user.setId(id);
-        if (user.getId() == null || user.getName() == null || user.getEmail() == null) {
+    // Write-through: the saved user replaces the cached one, so readers never see the old value after an update;
+    // the cache advice runs outside the transaction (see Application), so only a committed update is cached.
+    // With expectedVersions (from If-Match) the update is one statement that matches any of them; for a single version
+    // the result is built without reading the row. Without it, one update plus one select replaces the old
+    // existsById + merge (select + update)
+    @Transactional
+    @CachePut(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)")
+    public User updateUser(String id, User user, List<Long> expectedVersions) {
+        if (id == null || user.getName() == null || user.getEmail() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user data");
         }
-        if (!userRepository.existsById(id)) {
+        UUID userId = existingId(id);
+        if (expectedVersions == null) {
+            if (userRepository.updateNameAndEmail(userId, user.getName(), user.getEmail()) == 0) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+            }
+            return userRepository.findById(userId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        }
+        if (userRepository.updateNameAndEmailIfVersionIn(userId, user.getName(), user.getEmail(), expectedVersions) == 0) {
+            // Only failed updates pay for telling the two cases apart
+            if (userRepository.existsById(userId)) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was modified");
+            }
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
         }
-        return userRepository.save(user);
+        if (expectedVersions.size() == 1) {
+            return new User(userId, user.getName(), user.getEmail(), expectedVersions.get(0) + 1);
+        }
+        // Which of the listed versions matched is only known from the row
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
 
+    @CacheEvict(cacheNames = USERS_CACHE, key = "T(com.example.service.UserService).cacheKey(#id)")
     public void deleteUser(String id) {
-        if (!userRepository.existsById(id)) {
+        UUID userId = existingId(id);
+        if (!userRepository.existsById(userId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
         }
-        userRepository.deleteById(id);
+        userRepository.deleteById(userId);
+    }
+
+    static Optional<UUID> parseId(String id) {
+        try {
+            return id == null ? Optional.empty() : Optional.of(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // A path id that is not a UUID cannot name a user
+    private static UUID existingId(String id) {
+        return parseId(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    }
+
+    // Cache key of an id: its canonical UUID form, so every spelling of one id ("ABC..." and "abc...") shares
+    // one entry and an update or delete through either spelling reaches it. Ids that are not UUIDs are kept as given
+    public static String cacheKey(String id) {
+        return parseId(id).map(UUID::toString).orElse(String.valueOf(id));
     }
 }
@@ -2,14 +2,22 @@ package com.example;
 
 import com.example.model.User;
 import com.example.repository.UserRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.interceptor.BeanFactoryCacheOperationSourceAdvisor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.interceptor.BeanFactoryTransactionAttributeSourceAdvisor;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -23,6 +31,12 @@ public class RestApiTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BeanFactoryCacheOperationSourceAdvisor cacheAdvisor;
+
+    @Autowired
+    private BeanFactoryTransactionAttributeSourceAdvisor transactionAdvisor;
+
     // CREATE Operations
     @Test
     void testCreateUser_ValidRequest_Returns201AndUserObject() throws Exception {
@@ -88,7 +102,7 @@ public class RestApiTest {
 
         mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(savedUser.getId()))
+                .andExpect(jsonPath("$.id").value(savedUser.getId().toString()))
                 .andExpect(jsonPath("$.name").value("Alice Smith"))
                 .andExpect(jsonPath("$.email").value("alice.smith@example.com"));
     }
@@ -123,6 +137,122 @@ public class RestApiTest {
                 .andExpect(jsonPath("$[*].email").exists());
     }
 
+    @Test
+    void testGetUsersPage_KeysetCursorAndFieldProjection() throws Exception {
+        userRepository.deleteAll();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setName("Page User " + i);
+            user.setEmail("page" + i + "@example.com");
+            userRepository.save(user);
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/users").param("limit", "3").param("fields", "id,name"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String firstBody = mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(3)))
+                .andExpect(jsonPath("$.users[0].id").exists())
+                .andExpect(jsonPath("$.users[0].name").exists())
+                .andExpect(jsonPath("$.users[0].email").doesNotExist())
+                .andExpect(jsonPath("$.next").isString())
+                .andReturn().getResponse().getContentAsString();
+        String next = JsonPath.read(firstBody, "$.next");
+
+        MvcResult second = mockMvc.perform(get("/api/users").param("limit", "3").param("after", next))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(2)))
+                .andExpect(jsonPath("$.users[0].id", greaterThan(next)))
+                .andExpect(jsonPath("$.users[0].email").exists())
+                .andExpect(jsonPath("$.next").value(nullValue()));
+
+        mockMvc.perform(get("/api/users").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users").param("fields", "id,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users").param("after", "not-an-id"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportUsers_StreamsOneJsonObjectPerLine() throws Exception {
+        userRepository.deleteAll();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setName("Export User " + i);
+            user.setEmail("export" + i + "@example.com");
+            userRepository.save(user);
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines) {
+            assertTrue(line.startsWith("{"), "Each line is exactly one JSON object: " + line);
+            assertTrue(JsonPath.<String>read(line, "$.name").startsWith("Export User "));
+        }
+    }
+
+    // CACHE Behaviour
+    @Test
+    void testGetUser_ServedFromCacheUntilUpdatedOrDeletedThroughService() throws Exception {
+        User user = new User();
+        user.setName("Cached User");
+        user.setEmail("cached@example.com");
+        User savedUser = userRepository.save(user);
+
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
+                .andExpect(jsonPath("$.name").value("Cached User"));
+
+        // A write that bypasses UserService is not seen: the second read is a cache hit
+        savedUser.setName("Changed Behind The Cache");
+        userRepository.save(savedUser);
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
+                .andExpect(jsonPath("$.name").value("Cached User"));
+
+        // An update through the service replaces the cached copy, whichever spelling of the id it uses
+        String upperCaseId = savedUser.getId().toString().toUpperCase();
+        mockMvc.perform(put("/api/users/{id}", upperCaseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                                "name": "Updated User",
+                                "email": "updated@example.com"
+                            }
+                            """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
+                .andExpect(jsonPath("$.name").value("Updated User"));
+
+        mockMvc.perform(delete("/api/users/{id}", upperCaseId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:users")
+                        .param("tag", "result:hit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value", greaterThanOrEqualTo(2.0)));
+    }
+
+    @Test
+    void testCacheAdvice_WrapsTransaction() {
+        // Runs first, so @CachePut sees the result only once the transaction has committed
+        assertTrue(cacheAdvisor.getOrder() < transactionAdvisor.getOrder());
+    }
+
     // UPDATE Operations
     @Test
     void testUpdateUser_ValidRequest_Returns200AndUpdatedUser() throws Exception {
@@ -143,7 +273,7 @@ public class RestApiTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(updateJson))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(savedUser.getId()))
+                .andExpect(jsonPath("$.id").value(savedUser.getId().toString()))
                 .andExpect(jsonPath("$.name").value("Updated User"))
                 .andExpect(jsonPath("$.email").value("updated@example.com"));
     }
@@ -197,6 +327,64 @@ public class RestApiTest {
                 .andExpect(status().isNotFound());
     }
 
+    // CONDITIONAL Requests
+    @Test
+    void testConditionalGetAndUpdate_EtagFollowsVersion() throws Exception {
+        User user = new User();
+        user.setName("Etag User");
+        user.setEmail("etag@example.com");
+        User savedUser = userRepository.save(user);
+
+        String etag = mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        String json = """
+            {
+                "name": "Etag User Updated",
+                "email": "etag.updated@example.com"
+            }
+            """;
+        String newEtag = mockMvc.perform(put("/api/users/{id}", savedUser.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Etag User Updated"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+
+        // The old ETag is stale now: the conditional update is refused and the user keeps the first update
+        mockMvc.perform(put("/api/users/{id}", savedUser.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/users/{id}", savedUser.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, newEtag));
+
+        // A list matches when any of its tags does; weak tags are never a match
+        mockMvc.perform(put("/api/users/{id}", savedUser.getId())
+                        .header(HttpHeaders.IF_MATCH, "W/" + newEtag + ", " + etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isPreconditionFailed());
+        String listEtag = mockMvc.perform(put("/api/users/{id}", savedUser.getId())
+                        .header(HttpHeaders.IF_MATCH, etag + ", " + newEtag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(newEtag, listEtag);
+    }
+
     // DELETE Operations
     @Test
     void testDeleteUser_ExistingUser_Returns204() throws Exception {
@@ -0,0 +1,49 @@
+// Byte-level helpers for the line protocol
+// Work on absolute ByteBuffer indexes, so ASCII requests are found, checked and
+// uppercased without ever becoming a String or moving the buffer position
+import java.nio.ByteBuffer;
+
+final class AsciiLines {
+    private AsciiLines() {
+    }
+
+    // Index of the next '\n' in [from, to), or -1
+    static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    // End of the line content, dropping the '\r' of a "\r\n" terminator
+    static int trimCarriageReturn(ByteBuffer buffer, int from, int end) {
+        return end > from && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    // Uppercases a-z in place, leaving every other byte alone, and returns true if every byte was ASCII
+    // Text callers redo a non-ASCII line with String.toUpperCase(), which is idempotent; binary callers ignore the result
+    static boolean toUpperCaseInPlace(ByteBuffer buffer, int from, int to) {
+        boolean ascii = true;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                ascii = false;
+            } else if (b >= 'a' && b <= 'z') {
+                buffer.put(i, (byte) (b - ('a' - 'A')));
+            }
+        }
+        return ascii;
+    }
+
+    // Same rule as ClientHandler for an ASCII line: empty, or "exit" ignoring case and surrounding whitespace
+    static boolean isCloseRequest(ByteBuffer buffer, int from, int to) {
+        if (from == to) return true;
+        while (from < to && buffer.get(from) <= ' ') from++;
+        while (to > from && buffer.get(to - 1) <= ' ') to--;
+        return to - from == 4
+                && (buffer.get(from) | 0x20) == 'e'
+                && (buffer.get(from + 1) | 0x20) == 'x'
+                && (buffer.get(from + 2) | 0x20) == 'i'
+                && (buffer.get(from + 3) | 0x20) == 't';
+    }
+}
@@ -12,7 +12,11 @@ public class Client {
     private static final int SERVER_PORT = 8080;
 
     public static void main(String[] args) {
-        start();
+        if ("framed".equalsIgnoreCase(System.getenv().getOrDefault("PROTOCOL", "text"))) {
+            startFramed();
+        } else {
+            start();
+        }
     }
 
     public static void start() {
@@ -55,5 +59,32 @@ public class Client {
         }
         System.out.println("Connection closed");
     }
-}
 
+    // Same interactive loop over the length-prefixed protocol
+    public static void startFramed() {
+        try (FramedClient client = new FramedClient(SERVER_IP, SERVER_PORT);
+             BufferedReader userInput = new BufferedReader(
+                     new InputStreamReader(System.in))) {
+
+            System.out.println("Connected to server at " + SERVER_IP + ":" + SERVER_PORT + " (framed)");
+
+            while (true) {
+                System.out.print("Enter message (type 'exit' to quit): ");
+                String message = userInput.readLine();
+
+                if (message == null || message.isEmpty() || "exit".equalsIgnoreCase(message.trim())) {
+                    break;
+                }
+
+                System.out.println("Sent: " + message);
+                System.out.println("Received: " + client.sendText(message));
+            }
+
+        } catch (UnknownHostException e) {
+            System.err.println("Server not found: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+        }
+        System.out.println("Connection closed");
+    }
+}
@@ -0,0 +1,154 @@
+// Tracks every live connection of every Server mode
+// - Counters for connections, messages and bytes in/out, exposed over JMX as ConnectionRegistryMBean
+// - drain() asks each connection to finish its in-flight requests and close, then force-closes
+//   whatever is still open at the deadline
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionRegistry implements ConnectionRegistryMBean {
+    public static final String OBJECT_NAME = "socketlab:type=Server,name=Connections";
+
+    // A connection the registry can drain or close from the stopping thread
+    interface TrackedConnection {
+        // Stop taking new requests, answer the ones already read, then close
+        void drain();
+
+        void forceClose();
+    }
+
+    private final Set<TrackedConnection> live = ConcurrentHashMap.newKeySet();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            Log.error("Error registering connection stats: {}", e.getMessage());
+        }
+    }
+
+    void register(TrackedConnection connection) {
+        live.add(connection);
+        totalConnections.increment();
+    }
+
+    void deregister(TrackedConnection connection) {
+        live.remove(connection);
+    }
+
+    void recordMessages(long in, long out) {
+        messagesIn.add(in);
+        messagesOut.add(out);
+    }
+
+    void recordBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    void recordBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    InputStream countingInput(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) bytesIn.increment();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) bytesIn.add(read);
+                return read;
+            }
+        };
+    }
+
+    OutputStream countingOutput(OutputStream out) {
+        return new FilterOutputStream(out) {
+            // Counted before the write, so the stats never lag behind what a client has received
+            @Override
+            public void write(int b) throws IOException {
+                bytesOut.increment();
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                bytesOut.add(length);
+                out.write(buffer, offset, length);
+            }
+        };
+    }
+
+    // Returns true if every connection closed by itself before the deadline
+    boolean drain(long deadlineNanos) {
+        for (TrackedConnection connection : live) {
+            connection.drain();
+        }
+        while (!live.isEmpty() && System.nanoTime() < deadlineNanos) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        boolean drained = live.isEmpty();
+        for (TrackedConnection connection : live) {
+            connection.forceClose();
+            live.remove(connection);
+        }
+        return drained;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return live.size();
+    }
+
+    @Override
+    public long getTotalConnections() {
+        return totalConnections.sum();
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+}
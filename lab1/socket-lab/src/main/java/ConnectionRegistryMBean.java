@@ -0,0 +1,14 @@
+// JMX view of ConnectionRegistry, e.g. in jconsole under socketlab:type=Server,name=Connections
+public interface ConnectionRegistryMBean {
+    int getActiveConnections();
+
+    long getTotalConnections();
+
+    long getMessagesIn();
+
+    long getMessagesOut();
+
+    long getBytesIn();
+
+    long getBytesOut();
+}
@@ -0,0 +1,56 @@
+// Client for the length-prefixed protocol (see Frames)
+// - Sends the magic header on connect, then one frame per request
+// - Responses are read with a single bulk readFully into a buffer of the announced length
+// - Payloads may contain newlines or arbitrary bytes
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class FramedClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public FramedClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.write(Frames.MAGIC);
+    }
+
+    public String sendText(String message) throws IOException {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        return new String(exchange(Frames.TEXT, payload), StandardCharsets.UTF_8);
+    }
+
+    public byte[] sendBinary(byte[] payload) throws IOException {
+        return exchange(Frames.BINARY, payload);
+    }
+
+    private byte[] exchange(byte opcode, byte[] payload) throws IOException {
+        Frames.write(out, opcode, payload, payload.length);
+        out.flush();
+
+        int length = in.readInt();
+        byte responseOpcode = in.readByte();
+        byte[] response = new byte[length];
+        in.readFully(response);
+        if (responseOpcode == Frames.ERROR) {
+            throw new IOException("Server error: " + new String(response, StandardCharsets.UTF_8));
+        }
+        if (responseOpcode != opcode) {
+            throw new IOException("Unexpected response opcode " + responseOpcode);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            Frames.write(out, Frames.CLOSE, new byte[0], 0);
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+}
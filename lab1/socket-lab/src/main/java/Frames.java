@@ -0,0 +1,68 @@
+// Length-prefixed binary protocol, negotiated on the same port as the text protocol
+// - A framed client opens with MAGIC; a text line never starts with a NUL byte
+// - Each frame is a 4-byte big-endian payload length, a 1-byte opcode, then the payload
+// - TEXT payloads are UTF-8 and answered uppercased, BINARY payloads get a-z uppercased and every other byte echoed
+// - CLOSE ends the session like "exit"; ERROR carries a UTF-8 reason before the server closes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+final class Frames {
+    static final byte[] MAGIC = {0, 'S', 'L', 1};
+    static final int HEADER_LENGTH = 5;
+    static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+    static final byte TEXT = 1;
+    static final byte BINARY = 2;
+    static final byte CLOSE = 3;
+    static final byte ERROR = 4;
+
+    private Frames() {
+    }
+
+    // Consumes the magic header if present, otherwise leaves the stream untouched for the text protocol
+    // Decides on the first byte, so a text client is never kept waiting for more input
+    static boolean readMagic(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        if (in.read() != MAGIC[0]) {
+            in.reset();
+            return false;
+        }
+        for (int i = 1; i < MAGIC.length; i++) {
+            if (in.read() != MAGIC[i]) {
+                in.reset();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean hasMagic(ByteBuffer buffer, int from) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(from + i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static boolean isValid(byte opcode, int length) {
+        return (opcode == TEXT || opcode == BINARY) && length >= 0 && length <= MAX_PAYLOAD_LENGTH;
+    }
+
+    static void write(DataOutputStream out, byte opcode, byte[] payload, int length) throws IOException {
+        out.writeInt(length);
+        out.writeByte(opcode);
+        out.write(payload, 0, length);
+    }
+
+    static ByteBuffer header(byte opcode, int length) {
+        return ByteBuffer.allocate(HEADER_LENGTH).putInt(length).put(opcode).flip();
+    }
+
+    static ByteBuffer encode(byte opcode, String text) {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                .putInt(payload.length).put(opcode).put(payload).flip();
+    }
+}
@@ -0,0 +1,111 @@
+// HDR-style latency histogram
+// - Log-linear buckets: each power of two is split into SUB_BUCKETS / 2 linear steps,
+//   so every recorded value is kept within 1/64 (~1.6%) relative error
+// - Fixed footprint whatever the number of samples, recording is a single lock-free array increment
+// - recordValueWithExpectedInterval() corrects coordinated omission the same way HdrHistogram does
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(TimeUnit.MINUTES.toNanos(10));
+    }
+
+    public LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+
+    // Larger values are clamped to highestTrackableValue
+    public void recordValue(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.incrementAndGet(indexOf(clamped));
+        totalCount.incrementAndGet();
+        maxValue.accumulateAndGet(clamped, Math::max);
+    }
+
+    // A closed-loop sender cannot send while it waits, so one stall hides the requests it should have sent;
+    // back-fill them with the latencies they would have seen, one per missed interval
+    public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+        recordValue(value);
+        if (expectedInterval <= 0) return;
+        for (long missed = value - expectedInterval; missed >= expectedInterval; missed -= expectedInterval) {
+            recordValue(missed);
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < Math.min(counts.length(), other.counts.length()); i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    // Highest value equivalent to the bucket holding the given percentile (0-100), like HdrHistogram
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long total = totalCount.get();
+        if (total == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                sum += (double) count * ((lowestValueAt(i) + highestValueAt(i)) / 2.0);
+            }
+        }
+        return sum / total;
+    }
+
+    // Values below SUB_BUCKETS map to themselves; above, the top SUB_BUCKET_BITS - 1 bits pick the sub-bucket
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+}
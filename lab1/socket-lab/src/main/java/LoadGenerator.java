@@ -0,0 +1,190 @@
+// Load generator for the socket server, works against every Server mode
+// - Opens LOAD_CONNECTIONS connections, one sender thread each
+// - closed loop: every connection sends its next line as soon as the previous response arrives
+// - open loop: requests are scheduled at a fixed total LOAD_RATE, independent of how fast the server answers
+// - connect loop: closed loop where every request is a new connection (connect, one line, exit),
+//   so it measures the connection rate the accept path sustains
+// - Latency is recorded in a LatencyHistogram and reported as p50/p99/p999 plus throughput
+//
+// Coordinated omission: in open loop every latency is measured from the request's scheduled send time,
+// so a server stall also counts against the requests that queued up behind it. In closed loop the
+// missed sends are back-filled with the warmup median as the expected interval.
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+
+    public enum LoopMode { CLOSED, OPEN, CONNECT }
+
+    public record Config(String host, int port, int connections, LoopMode loopMode, int rate,
+                         long warmupMillis, long durationMillis, String message) {
+
+        static Config fromEnv() {
+            return new Config(
+                    System.getenv().getOrDefault("LOAD_HOST", "localhost"),
+                    Integer.parseInt(System.getenv().getOrDefault("LOAD_PORT", "8080")),
+                    Integer.parseInt(System.getenv().getOrDefault("LOAD_CONNECTIONS", "50")),
+                    LoopMode.valueOf(System.getenv().getOrDefault("LOAD_MODE", "CLOSED").toUpperCase()),
+                    Integer.parseInt(System.getenv().getOrDefault("LOAD_RATE", "10000")),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(System.getenv().getOrDefault("LOAD_WARMUP_SECONDS", "5"))),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(System.getenv().getOrDefault("LOAD_DURATION_SECONDS", "30"))),
+                    System.getenv().getOrDefault("LOAD_MESSAGE", "hello from load generator"));
+        }
+    }
+
+    public record Result(LatencyHistogram histogram, long requests, long errors, double elapsedSeconds) {
+
+        public double throughput() {
+            return requests / elapsedSeconds;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromEnv();
+        System.out.println("Load test against " + config.host() + ":" + config.port()
+                + " - " + config.connections() + " connections, " + config.loopMode() + " loop"
+                + (config.loopMode() == LoopMode.OPEN ? ", " + config.rate() + " req/s" : ""));
+        print(run(config));
+    }
+
+    public static Result run(Config config) throws InterruptedException, IOException {
+        long expectedInterval = 0;
+        if (config.warmupMillis() > 0) {
+            Result warmup = runPhase(config, config.warmupMillis(), 0);
+            expectedInterval = warmup.histogram().getValueAtPercentile(50);
+        }
+        return runPhase(config, config.durationMillis(), expectedInterval);
+    }
+
+    private static Result runPhase(Config config, long durationMillis, long expectedInterval)
+            throws InterruptedException, IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        // Connect everything before the clock starts, so connection setup is not measured,
+        // except in connect loop where setup is the thing being measured
+        boolean connectPerRequest = config.loopMode() == LoopMode.CONNECT;
+        List<Socket> sockets = new ArrayList<>(config.connections());
+        try {
+            for (int i = 0; i < config.connections(); i++) {
+                Socket socket = connectPerRequest ? null : new Socket(config.host(), config.port());
+                if (socket != null) {
+                    socket.setTcpNoDelay(true);
+                }
+                sockets.add(socket);
+            }
+
+            CountDownLatch done = new CountDownLatch(sockets.size());
+            long start = System.nanoTime();
+            long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            // Each connection sends every connections/rate seconds, staggered so the total arrival rate is even
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) * config.connections() / Math.max(1, config.rate());
+            for (int i = 0; i < sockets.size(); i++) {
+                Socket socket = sockets.get(i);
+                long firstSend = start + intervalNanos * i / sockets.size();
+                Thread sender = new Thread(() -> {
+                    try {
+                        switch (config.loopMode()) {
+                            case OPEN -> runOpenLoop(socket, config.message(), firstSend, intervalNanos, end,
+                                    histogram, requests);
+                            case CLOSED -> runClosedLoop(socket, config.message(), end, expectedInterval,
+                                    histogram, requests);
+                            case CONNECT -> runConnectLoop(config, end, expectedInterval, histogram, requests);
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "load-connection-" + i);
+                sender.setDaemon(true);
+                sender.start();
+            }
+            done.await();
+            double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            return new Result(histogram, requests.get(), errors.get(), elapsedSeconds);
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    private static void runClosedLoop(Socket socket, String message, long end, long expectedInterval,
+                                      LatencyHistogram histogram, AtomicLong requests) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            out.println(message);
+            out.flush();
+            if (in.readLine() == null) throw new EOFException("Server closed connection");
+            histogram.recordValueWithExpectedInterval(System.nanoTime() - now, expectedInterval);
+            requests.incrementAndGet();
+        }
+    }
+
+    // The client sends "exit" and waits for the server to close first, so TIME_WAIT stays on the server
+    // side and a long run does not exhaust the client's ephemeral ports
+    private static void runConnectLoop(Config config, long end, long expectedInterval,
+                                       LatencyHistogram histogram, AtomicLong requests) throws IOException {
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            try (Socket socket = new Socket(config.host(), config.port())) {
+                socket.setTcpNoDelay(true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+                out.println(config.message());
+                out.println("exit");
+                out.flush();
+                if (in.readLine() == null) throw new EOFException("Server closed connection");
+                histogram.recordValueWithExpectedInterval(System.nanoTime() - now, expectedInterval);
+                requests.incrementAndGet();
+                in.readLine();
+            }
+        }
+    }
+
+    private static void runOpenLoop(Socket socket, String message, long firstSend, long intervalNanos, long end,
+                                    LatencyHistogram histogram, AtomicLong requests) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+        for (long intended = firstSend; intended < end; intended += intervalNanos) {
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            out.println(message);
+            out.flush();
+            if (in.readLine() == null) throw new EOFException("Server closed connection");
+            // Measured from when the request should have gone out, not when it actually did
+            histogram.recordValue(System.nanoTime() - intended);
+            requests.incrementAndGet();
+        }
+    }
+
+    public static void print(Result result) {
+        LatencyHistogram histogram = result.histogram();
+        System.out.println("=".repeat(50));
+        System.out.printf("Requests:   %d (%d connection errors)%n", result.requests(), result.errors());
+        System.out.printf("Duration:   %.3f s%n", result.elapsedSeconds());
+        System.out.printf("Throughput: %.1f req/s%n", result.throughput());
+        System.out.printf("Latency samples: %d (including coordinated omission corrections)%n",
+                histogram.getTotalCount());
+        System.out.printf("  mean  %10.1f us%n", histogram.getMean() / 1000.0);
+        System.out.printf("  p50   %10.1f us%n", histogram.getValueAtPercentile(50) / 1000.0);
+        System.out.printf("  p99   %10.1f us%n", histogram.getValueAtPercentile(99) / 1000.0);
+        System.out.printf("  p999  %10.1f us%n", histogram.getValueAtPercentile(99.9) / 1000.0);
+        System.out.printf("  max   %10.1f us%n", histogram.getMaxValue() / 1000.0);
+        System.out.println("=".repeat(50));
+    }
+}
@@ -0,0 +1,175 @@
+// Asynchronous, level-gated server log
+// - Callers only claim a slot in a fixed ring buffer and store the record; a single daemon thread
+//   formats it and writes whole batches, so connection threads never queue on the System.out lock
+// - Messages below LOG_LEVEL (default INFO) return after one volatile read; templates use {} placeholders
+//   and fixed-arity overloads, so a disabled call builds no String and no varargs array
+// - A full buffer drops records instead of blocking the caller; the drop count is logged later
+// - Per-message tracing is sampled: traceSampled() lets through 1 in LOG_TRACE_SAMPLE messages when TRACE is on
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+final class Log {
+
+    enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private record Entry(long timeMillis, Level level, String thread, String template, Object arg1, Object arg2) {
+    }
+
+    private static final int CAPACITY = Integer.highestOneBit(
+            Math.max(2, Integer.parseInt(System.getenv().getOrDefault("LOG_BUFFER_SIZE", "8192"))));
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong claimed = new AtomicLong();   // next sequence a producer takes
+    private static final AtomicLong consumed = new AtomicLong();  // next sequence the writer takes
+    private static final AtomicLong written = new AtomicLong();   // records printed so far
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static volatile int threshold = Level.valueOf(
+            System.getenv().getOrDefault("LOG_LEVEL", Level.INFO.name()).toUpperCase()).ordinal();
+    private static volatile int traceSample = Math.max(1,
+            Integer.parseInt(System.getenv().getOrDefault("LOG_TRACE_SAMPLE", "100")));
+
+    static {
+        Thread writer = new Thread(Log::drainLoop, "socket-lab-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush));
+    }
+
+    private Log() {
+    }
+
+    static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    static void setTraceSample(int oneIn) {
+        traceSample = Math.max(1, oneIn);
+    }
+
+    static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    // Decide once per message, then guard both its "received" and "sent" trace with the result
+    static boolean traceSampled() {
+        if (Level.TRACE.ordinal() < threshold) return false;
+        int sample = traceSample;
+        return sample == 1 || ThreadLocalRandom.current().nextInt(sample) == 0;
+    }
+
+    static long droppedCount() {
+        return dropped.get();
+    }
+
+    static void trace(String template, Object arg) {
+        log(Level.TRACE, template, arg, null);
+    }
+
+    static void info(String template) {
+        log(Level.INFO, template, null, null);
+    }
+
+    static void info(String template, Object arg) {
+        log(Level.INFO, template, arg, null);
+    }
+
+    static void info(String template, Object arg1, Object arg2) {
+        log(Level.INFO, template, arg1, arg2);
+    }
+
+    static void warn(String template, Object arg) {
+        log(Level.WARN, template, arg, null);
+    }
+
+    static void error(String template, Object arg) {
+        log(Level.ERROR, template, arg, null);
+    }
+
+    static void log(Level level, String template, Object arg1, Object arg2) {
+        if (level.ordinal() < threshold) return;
+        Entry entry = new Entry(System.currentTimeMillis(), level, Thread.currentThread().getName(), template, arg1, arg2);
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        ring.set((int) (sequence & (CAPACITY - 1)), entry);
+    }
+
+    // Waits until everything logged before the call has been written, at most one second
+    static void flush() {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (written.get() < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    private static void drainLoop() {
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        long reportedDrops = 0;
+        long idleNanos = TimeUnit.MICROSECONDS.toNanos(100);
+        while (true) {
+            long sequence = consumed.get();
+            int count = 0;
+            Entry entry;
+            // A claimed slot may not be filled yet; stop there and pick it up on the next pass
+            while ((entry = ring.get((int) (sequence & (CAPACITY - 1)))) != null) {
+                ring.set((int) (sequence & (CAPACITY - 1)), null);
+                consumed.set(++sequence);
+                format(entry, entry.level().compareTo(Level.WARN) >= 0 ? err : out);
+                count++;
+            }
+            long drops = dropped.get();
+            if (drops > reportedDrops) {
+                format(new Entry(System.currentTimeMillis(), Level.WARN, "socket-lab-log",
+                        "{} log records dropped, buffer full", drops - reportedDrops, null), err);
+                reportedDrops = drops;
+            }
+            write(System.out, out);
+            write(System.err, err);
+            written.addAndGet(count);
+
+            if (count == 0) {
+                LockSupport.parkNanos(idleNanos);
+                idleNanos = Math.min(idleNanos * 2, TimeUnit.MILLISECONDS.toNanos(10));
+            } else {
+                idleNanos = TimeUnit.MICROSECONDS.toNanos(100);
+            }
+        }
+    }
+
+    private static void format(Entry entry, StringBuilder sb) {
+        sb.append(Instant.ofEpochMilli(entry.timeMillis())).append(' ')
+                .append(entry.level()).append(" [").append(entry.thread()).append("] ");
+        String template = entry.template();
+        int first = template.indexOf("{}");
+        int second = first < 0 ? -1 : template.indexOf("{}", first + 2);
+        if (first < 0) {
+            sb.append(template);
+        } else if (second < 0) {
+            sb.append(template, 0, first).append(entry.arg1()).append(template, first + 2, template.length());
+        } else {
+            sb.append(template, 0, first).append(entry.arg1())
+                    .append(template, first + 2, second).append(entry.arg2())
+                    .append(template, second + 2, template.length());
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    private static void write(PrintStream stream, StringBuilder sb) {
+        if (sb.length() == 0) return;
+        stream.print(sb);
+        stream.flush();
+        sb.setLength(0);
+    }
+}
@@ -0,0 +1,508 @@
+// Single selector thread that multiplexes many non-blocking client connections
+// Runs the same line protocol as Server.ClientHandler:
+// - Read bytes until '\n' and treat them as one request line
+// - Process request through the RequestPipeline (uppercase by default) and send response back
+// - Close connection on an empty line or "exit"
+// Clients that open with Frames.MAGIC speak the length-prefixed protocol instead
+// The default pipeline runs in place on the read buffer; any other pipeline gets a String per request,
+// may complete on its own worker pool, and its responses are written back in request order
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+class NioEventLoop implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // At most half the read buffer, so a carried partial line always leaves room to read more
+    private static final int MAX_LINE_LENGTH = READ_BUFFER_SIZE / 2;
+    // Responses a connection may have in flight on the pipeline workers before its reads pause
+    private static final int MAX_QUEUED_RESPONSES = 1024;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    // Work handed to the loop thread by other threads
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ConnectionRegistry registry;
+    private final RequestPipeline pipeline;
+    private final boolean inPlace;
+    // Shared by every connection on this loop, so idle connections hold no read buffer;
+    // direct, so channel reads and writes need no copy through a temporary native buffer
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    NioEventLoop(String name, ConnectionRegistry registry, RequestPipeline pipeline) throws IOException {
+        this.registry = registry;
+        this.pipeline = pipeline;
+        this.inPlace = pipeline.isUppercase();
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Called from the accept thread, the channel is registered on the loop thread
+    void register(SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    void awaitTermination(long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPendingChannels();
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                    } catch (IOException e) {
+                        Log.error("Error handling client: {}", e.getMessage());
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.error("Event loop exception: {}", e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Connection connection = new Connection(channel, key);
+                key.attach(connection);
+                registry.register(connection);
+                Log.info("Client connected: {}", channel.socket().getInetAddress());
+            } catch (IOException e) {
+                Log.error("Error registering client: {}", e.getMessage());
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                connection.close();
+            } else {
+                closeQuietly((SocketChannel) key.channel());
+            }
+        }
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            closeQuietly(channel);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Log.error("Error closing selector: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.error("Error closing socket: {}", e.getMessage());
+        }
+    }
+
+    // Per-connection state, only touched by the loop thread
+    private final class Connection implements ConnectionRegistry.TrackedConnection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private byte[] partialRequest;   // bytes of an unterminated line or frame, allocated on demand
+        private ByteBuffer pendingWrite; // response bytes the socket could not take yet
+        private ByteBuffer largeFrame;   // payload of a frame too big for the read buffer, sized exactly
+        private byte largeFrameOpcode;
+        private boolean negotiated;
+        private boolean framed;
+        private boolean closeAfterWrite;
+        private boolean draining;
+        private boolean closed;
+        private long messages; // requests answered but not yet counted in the registry
+        // Pipeline responses in request order, sent once the head completes; null on the in-place path
+        private final Queue<CompletableFuture<ByteBuffer>> queuedResponses = inPlace ? null : new ArrayDeque<>();
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void onReadable() throws IOException {
+            if (pendingWrite != null) return;
+            if (largeFrame != null) {
+                readLargeFrame();
+                return;
+            }
+
+            // An unterminated line or frame from the previous read goes in front, so every request is contiguous
+            readBuffer.clear();
+            if (partialRequest != null) {
+                readBuffer.put(partialRequest);
+                partialRequest = null;
+            }
+            int carried = readBuffer.position();
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                close();
+                return;
+            }
+            registry.recordBytesIn(read);
+            readBuffer.flip();
+            int limit = readBuffer.limit();
+            if (limit == 0) return;
+
+            // Framed clients open with the magic header, a text line never starts with its NUL byte
+            int start = 0;
+            if (!negotiated) {
+                if (readBuffer.get(0) == Frames.MAGIC[0] && limit < Frames.MAGIC.length) {
+                    keepPartialRequest(0, limit);
+                    return;
+                }
+                negotiated = true;
+                framed = readBuffer.get(0) == Frames.MAGIC[0] && Frames.hasMagic(readBuffer, 0);
+                if (framed) {
+                    start = Frames.MAGIC.length;
+                }
+            }
+
+            int consumed = framed ? processFrames(start, limit) : processLines(start, carried, limit);
+            if (!closeAfterWrite) {
+                keepPartialRequest(consumed, limit);
+            }
+            if (queuedResponses != null) {
+                sendCompleted();
+            } else {
+                closeIfDone();
+            }
+        }
+
+        // Closes once nothing is left to write, and when draining also once no request is half-read
+        private void closeIfDone() {
+            if (pendingWrite != null || (queuedResponses != null && !queuedResponses.isEmpty())) return;
+            if (closeAfterWrite || (draining && partialRequest == null && largeFrame == null)) {
+                close();
+            }
+        }
+
+        // Called from the stopping thread, the loop thread does the work
+        @Override
+        public void drain() {
+            execute(() -> {
+                draining = true;
+                if (channel.isOpen()) {
+                    closeIfDone();
+                }
+            });
+        }
+
+        @Override
+        public void forceClose() {
+            closeQuietly(channel);
+        }
+
+        // ASCII lines are uppercased in place and the buffer region is written straight back,
+        // so the common case allocates nothing; other lines take the String path
+        private int processLines(int start, int carried, int limit) throws IOException {
+            if (!inPlace) return queueLines(start, carried, limit);
+            int replyStart = start;
+            int lineStart = start;
+            int newline;
+            while ((newline = AsciiLines.indexOfNewline(readBuffer, Math.max(lineStart, carried), limit)) != -1) {
+                int lineEnd = AsciiLines.trimCarriageReturn(readBuffer, lineStart, newline);
+                if (AsciiLines.toUpperCaseInPlace(readBuffer, lineStart, lineEnd)) {
+                    if (AsciiLines.isCloseRequest(readBuffer, lineStart, lineEnd)) {
+                        closeAfterWrite = true;
+                        break;
+                    }
+                    lineStart = newline + 1;
+                    messages++;
+                } else {
+                    sendRange(replyStart, lineStart);
+                    String request = decode(lineStart, lineEnd);
+                    lineStart = newline + 1;
+                    replyStart = lineStart;
+                    if ("exit".equalsIgnoreCase(request.trim())) {
+                        closeAfterWrite = true;
+                        break;
+                    }
+                    send(StandardCharsets.UTF_8.encode(request.toUpperCase() + System.lineSeparator()));
+                    messages++;
+                }
+            }
+            sendRange(replyStart, lineStart);
+            return lineStart;
+        }
+
+        private int queueLines(int start, int carried, int limit) {
+            int lineStart = start;
+            int newline;
+            while ((newline = AsciiLines.indexOfNewline(readBuffer, Math.max(lineStart, carried), limit)) != -1) {
+                String request = decode(lineStart, AsciiLines.trimCarriageReturn(readBuffer, lineStart, newline));
+                lineStart = newline + 1;
+                if (request.isEmpty() || "exit".equalsIgnoreCase(request.trim())) {
+                    closeAfterWrite = true;
+                    break;
+                }
+                enqueue(pipeline.processAsync(request)
+                        .thenApply(response -> StandardCharsets.UTF_8.encode(response + System.lineSeparator())));
+            }
+            return lineStart;
+        }
+
+        // TEXT payloads go through the pipeline; BINARY ones are uppercased as bytes but still queue,
+        // so they cannot overtake a TEXT response that is still on a worker
+        private CompletableFuture<ByteBuffer> processFrame(byte opcode, ByteBuffer payload) {
+            if (opcode == Frames.TEXT) {
+                String request = StandardCharsets.UTF_8.decode(payload).toString();
+                return pipeline.processAsync(request).thenApply(response -> Frames.encode(Frames.TEXT, response));
+            }
+            int length = payload.remaining();
+            AsciiLines.toUpperCaseInPlace(payload, payload.position(), payload.limit());
+            ByteBuffer response = ByteBuffer.allocate(Frames.HEADER_LENGTH + length)
+                    .put(Frames.header(opcode, length)).put(payload).flip();
+            return CompletableFuture.completedFuture(response);
+        }
+
+        private void enqueue(CompletableFuture<ByteBuffer> response) {
+            queuedResponses.add(response);
+            if (!response.isDone()) {
+                response.whenComplete((result, error) -> execute(this::sendCompleted));
+            }
+        }
+
+        // Sends completed responses from the head of the queue, then pauses or resumes reading
+        private void sendCompleted() {
+            if (closed) return;
+            try {
+                while (!queuedResponses.isEmpty() && queuedResponses.peek().isDone()) {
+                    ByteBuffer response = queuedResponses.poll().join();
+                    messages++;
+                    send(response);
+                }
+            } catch (CompletionException e) {
+                Log.error("Error processing request: {}", e.getCause().getMessage());
+                close();
+                return;
+            } catch (IOException e) {
+                Log.error("Error handling client: {}", e.getMessage());
+                close();
+                return;
+            }
+            updateInterest();
+            closeIfDone();
+        }
+
+        // A reply has the same header and length as its request unless a TEXT payload is non-ASCII,
+        // so most frames are answered in place like ASCII lines
+        private int processFrames(int start, int limit) throws IOException {
+            int replyStart = start;
+            int frameStart = start;
+            while (limit - frameStart >= Frames.HEADER_LENGTH) {
+                int length = readBuffer.getInt(frameStart);
+                byte opcode = readBuffer.get(frameStart + 4);
+                int payloadStart = frameStart + Frames.HEADER_LENGTH;
+                if (opcode == Frames.CLOSE) {
+                    closeAfterWrite = true;
+                    break;
+                }
+                if (!Frames.isValid(opcode, length)) {
+                    sendRange(replyStart, frameStart);
+                    ByteBuffer error = Frames.encode(Frames.ERROR, "Invalid frame: opcode " + opcode + ", length " + length);
+                    if (queuedResponses != null) {
+                        enqueue(CompletableFuture.completedFuture(error));
+                    } else {
+                        send(error);
+                    }
+                    closeAfterWrite = true;
+                    return frameStart;
+                }
+                if (limit - payloadStart < length) {
+                    if (Frames.HEADER_LENGTH + length <= MAX_LINE_LENGTH) break;
+                    // Too big for the shared buffer: the rest is read straight into a buffer of exactly this size
+                    sendRange(replyStart, frameStart);
+                    largeFrameOpcode = opcode;
+                    largeFrame = ByteBuffer.allocate(length);
+                    readBuffer.limit(limit).position(payloadStart);
+                    largeFrame.put(readBuffer);
+                    return limit;
+                }
+
+                int payloadEnd = payloadStart + length;
+                if (inPlace) {
+                    boolean ascii = AsciiLines.toUpperCaseInPlace(readBuffer, payloadStart, payloadEnd);
+                    if (!ascii && opcode == Frames.TEXT) {
+                        sendRange(replyStart, frameStart);
+                        send(Frames.encode(Frames.TEXT, decode(payloadStart, payloadEnd).toUpperCase()));
+                        replyStart = payloadEnd;
+                    }
+                    messages++;
+                } else {
+                    byte[] payload = new byte[length];
+                    readBuffer.get(payloadStart, payload);
+                    enqueue(processFrame(opcode, ByteBuffer.wrap(payload)));
+                    replyStart = payloadEnd;
+                }
+                frameStart = payloadEnd;
+            }
+            sendRange(replyStart, frameStart);
+            return frameStart;
+        }
+
+        private void readLargeFrame() throws IOException {
+            int read = channel.read(largeFrame);
+            if (read == -1) {
+                close();
+                return;
+            }
+            registry.recordBytesIn(read);
+            if (largeFrame.hasRemaining()) return;
+
+            largeFrame.flip();
+            if (!inPlace) {
+                enqueue(processFrame(largeFrameOpcode, largeFrame));
+                largeFrame = null;
+                sendCompleted();
+                return;
+            }
+            messages++;
+            boolean ascii = AsciiLines.toUpperCaseInPlace(largeFrame, 0, largeFrame.limit());
+            if (ascii || largeFrameOpcode == Frames.BINARY) {
+                send(Frames.header(largeFrameOpcode, largeFrame.limit()));
+                send(largeFrame);
+            } else {
+                byte[] bytes = new byte[largeFrame.limit()];
+                largeFrame.get(bytes);
+                send(Frames.encode(Frames.TEXT, new String(bytes, StandardCharsets.UTF_8).toUpperCase()));
+            }
+            largeFrame = null;
+            closeIfDone();
+        }
+
+        void onWritable() throws IOException {
+            channel.write(pendingWrite);
+            if (pendingWrite.hasRemaining()) return;
+
+            pendingWrite = null;
+            updateInterest();
+            closeIfDone();
+        }
+
+        private void sendRange(int from, int to) throws IOException {
+            if (from == to) return;
+            int limit = readBuffer.limit();
+            readBuffer.limit(to).position(from);
+            send(readBuffer);
+            readBuffer.limit(limit);
+        }
+
+        private void send(ByteBuffer response) throws IOException {
+            // Counted before the answers go out, so a client never sees its response before the stats do
+            if (messages > 0) {
+                registry.recordMessages(messages, messages);
+                messages = 0;
+            }
+            registry.recordBytesOut(response.remaining());
+            if (pendingWrite == null) {
+                channel.write(response);
+                if (!response.hasRemaining()) return;
+            }
+            // The socket is full: keep a private copy, since the read buffer is reused by the next connection,
+            // and stop reading until the client drains its side so a slow reader cannot grow our buffers
+            int pending = pendingWrite == null ? 0 : pendingWrite.remaining();
+            ByteBuffer copy = ByteBuffer.allocate(pending + response.remaining());
+            if (pendingWrite != null) {
+                copy.put(pendingWrite);
+            }
+            copy.put(response).flip();
+            pendingWrite = copy;
+            updateInterest();
+        }
+
+        // Writes first; reads stay off after a close request and while too many pipeline responses are in flight
+        private void updateInterest() {
+            if (closed) return;
+            if (pendingWrite != null) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closeAfterWrite
+                    || (queuedResponses != null && queuedResponses.size() >= MAX_QUEUED_RESPONSES)) {
+                key.interestOps(0);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            readBuffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void keepPartialRequest(int start, int end) throws IOException {
+            if (start == end) return;
+            if (end - start > MAX_LINE_LENGTH) {
+                throw new IOException("Request line exceeds " + MAX_LINE_LENGTH + " bytes");
+            }
+            partialRequest = new byte[end - start];
+            readBuffer.get(start, partialRequest);
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            key.cancel();
+            closeQuietly(channel);
+            registry.deregister(this);
+            Log.info("Client Connection closed");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+// Pipelined client for the line protocol
+// - Keeps up to maxInFlight requests on the wire instead of waiting one round trip per line
+// - A writer thread drains queued requests and flushes once per batch
+// - The server answers lines in order, so a FIFO of futures matches responses to requests
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PipelinedClient implements Closeable {
+    // Queued by close() after every request, tells the writer to send "exit"
+    private static final Request CLOSE = new Request(null, null);
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+    private final Semaphore window;
+    private final BlockingQueue<Request> outbound = new LinkedBlockingQueue<>();
+    private final Queue<CompletableFuture<String>> inFlight = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+    private final Thread reader;
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+    private volatile boolean closed;
+
+    private record Request(String message, CompletableFuture<String> response) {
+    }
+
+    public PipelinedClient(String host, int port, int maxInFlight) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.socket = new Socket(host, port);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+        this.window = new Semaphore(maxInFlight);
+        this.writer = new Thread(this::writeLoop, "pipelined-client-writer");
+        this.reader = new Thread(this::readLoop, "pipelined-client-reader");
+        writer.start();
+        reader.start();
+    }
+
+    // Blocks only while maxInFlight requests are already outstanding
+    public CompletableFuture<String> send(String message) throws InterruptedException {
+        if (message.isEmpty() || message.indexOf('\n') >= 0 || message.indexOf('\r') >= 0
+                || "exit".equalsIgnoreCase(message.trim())) {
+            throw new IllegalArgumentException("Message must be a single non-empty line other than 'exit'");
+        }
+        if (closed) {
+            throw new IllegalStateException("Client is closed");
+        }
+        window.acquire();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        Request request = new Request(message, response);
+        outbound.add(request);
+        // Closed while queueing: nobody will write this request any more
+        if (closed && outbound.remove(request)) {
+            response.completeExceptionally(new IOException("Client is closed"));
+        }
+        return response;
+    }
+
+    // Sends every message with the pipeline full and returns the responses in the same order
+    public List<String> sendAll(List<String> messages) throws InterruptedException, IOException {
+        List<CompletableFuture<String>> responses = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            responses.add(send(message));
+        }
+        List<String> results = new ArrayList<>(messages.size());
+        for (CompletableFuture<String> response : responses) {
+            try {
+                results.add(response.get());
+            } catch (ExecutionException e) {
+                throw new IOException("Pipelined request failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Request request = outbound.take();
+                do {
+                    if (request == CLOSE) {
+                        out.write("exit" + System.lineSeparator());
+                        out.flush();
+                        return;
+                    }
+                    inFlight.add(request.response());
+                    out.write(request.message());
+                    out.write(System.lineSeparator());
+                } while ((request = outbound.poll()) != null);
+                out.flush();
+            }
+        } catch (IOException e) {
+            failPending(e);
+        } catch (InterruptedException e) {
+            failPending(new InterruptedIOException("Writer interrupted"));
+        }
+    }
+
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                CompletableFuture<String> response = inFlight.poll();
+                if (response == null) break;
+                response.complete(line);
+                window.release();
+            }
+            failPending(new EOFException("Server closed connection"));
+        } catch (IOException e) {
+            failPending(e);
+        }
+    }
+
+    private void failPending(IOException cause) {
+        closed = true;
+        CompletableFuture<String> response;
+        while ((response = inFlight.poll()) != null) {
+            response.completeExceptionally(cause);
+        }
+        Request request;
+        while ((request = outbound.poll()) != null) {
+            if (request != CLOSE) {
+                request.response().completeExceptionally(cause);
+            }
+        }
+        // Unblock senders waiting for a window slot, they will see the client is closed
+        if (failed.compareAndSet(false, true)) {
+            window.release(Integer.MAX_VALUE / 2);
+        }
+    }
+
+    // Requests already sent are still answered, the server closes after the trailing "exit"
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            outbound.add(CLOSE);
+        }
+        try {
+            writer.join(5000);
+            reader.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.interrupt();
+            socket.close();
+        }
+    }
+}
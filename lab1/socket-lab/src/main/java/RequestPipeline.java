@@ -0,0 +1,93 @@
+// Composable request processing for the line protocol
+// - A Decoder turns the request line into a value, Transformers map it stage by stage,
+//   an Encoder turns the result into the response line
+// - uppercase() is the default; the servers recognise it and keep their in-place byte path
+// - onWorkers(executor) runs the stages on a worker pool, so slow or CPU-heavy processing never
+//   blocks an NIO event loop; responses still go out in request order
+//
+// Example:
+//   RequestPipeline.decodeWith(Integer::parseInt).then(n -> n * n).encodeWith(String::valueOf)
+//           .onWorkers(Executors.newFixedThreadPool(8))
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+public final class RequestPipeline {
+
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T decode(String request);
+    }
+
+    @FunctionalInterface
+    public interface Transformer<A, B> {
+        B transform(A value);
+    }
+
+    @FunctionalInterface
+    public interface Encoder<T> {
+        String encode(T value);
+    }
+
+    private static final RequestPipeline UPPERCASE = decodeWith(request -> request)
+            .then(String::toUpperCase)
+            .encodeWith(response -> response);
+
+    private final Function<String, String> stages;
+    private final Executor workers; // null runs the stages on the calling I/O thread
+
+    private RequestPipeline(Function<String, String> stages, Executor workers) {
+        this.stages = stages;
+        this.workers = workers;
+    }
+
+    public static RequestPipeline uppercase() {
+        return UPPERCASE;
+    }
+
+    public static <T> Stage<T> decodeWith(Decoder<T> decoder) {
+        return new Stage<>(decoder::decode);
+    }
+
+    // A pipeline under construction whose stages so far produce a T
+    public static final class Stage<T> {
+        private final Function<String, T> chain;
+
+        private Stage(Function<String, T> chain) {
+            this.chain = chain;
+        }
+
+        public <R> Stage<R> then(Transformer<? super T, ? extends R> transformer) {
+            return new Stage<R>(chain.andThen(transformer::transform));
+        }
+
+        public RequestPipeline encodeWith(Encoder<? super T> encoder) {
+            return new RequestPipeline(chain.andThen(encoder::encode), null);
+        }
+    }
+
+    public RequestPipeline onWorkers(Executor workers) {
+        return new RequestPipeline(stages, workers);
+    }
+
+    // Only the shared inline instance qualifies; the same stages on workers take the generic path
+    boolean isUppercase() {
+        return this == UPPERCASE;
+    }
+
+    // Runs on the calling thread, for blocking handlers that own their thread anyway
+    public String process(String request) {
+        return stages.apply(request);
+    }
+
+    public CompletableFuture<String> processAsync(String request) {
+        if (workers != null) {
+            return CompletableFuture.supplyAsync(() -> process(request), workers);
+        }
+        try {
+            return CompletableFuture.completedFuture(process(request));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
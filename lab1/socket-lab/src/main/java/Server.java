@@ -8,100 +8,495 @@
 // - Close connection
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Server {
+    private static final int PORT = 8080;
+    private static final long ACCEPT_ERROR_BACKOFF_MILLIS = 10;
     private static ServerSocket serverSocket;
+    // Every listening channel of the NIO modes, closed by stop() to end their accept loops
+    private static final List<ServerSocketChannel> serverChannels = new CopyOnWriteArrayList<>();
     private static final AtomicBoolean isRunning = new AtomicBoolean(false);
+    // False once stop() begins; isRunning stays true until the drain has finished
+    private static volatile boolean accepting;
+    private static volatile long drainDeadlineNanos;
     private static Thread serverThread;
+    private static volatile RequestPipeline pipeline = RequestPipeline.uppercase();
+    private static final ConnectionRegistry connections = new ConnectionRegistry();
+
+    // How accepted connections are served, selected with SERVER_MODE
+    public enum Mode {
+        // One platform ClientHandler thread per connection
+        THREAD_PER_CONNECTION,
+        // A small fixed set of selector threads multiplexing non-blocking channels
+        NIO,
+        // Blocking ClientHandler per connection on a virtual thread (bounded platform pool before Java 21)
+        VIRTUAL_THREAD,
+        // Several acceptor threads, each with its own listening socket (SO_REUSEPORT) and its own event loops
+        MULTI_ACCEPTOR
+    }
 
     public static void main(String[] args) {
-        start();
+        start(Mode.valueOf(System.getenv().getOrDefault("SERVER_MODE", Mode.THREAD_PER_CONNECTION.name())));
     }
 
     public static void start() {
-        if (isRunning.get()) return;
+        start(Mode.THREAD_PER_CONNECTION);
+    }
+
+    public static void start(Mode mode) {
+        start(mode, RequestPipeline.uppercase());
+    }
 
-        isRunning.set(true);
-        serverThread = new Thread(() -> {
-            try (ServerSocket ss = new ServerSocket(8080)) {
-                serverSocket = ss;
-                System.out.println("Server started on port 8080");
+    // Every request line goes through the pipeline; its worker pool, if any, is owned by the caller
+    public static void start(Mode mode, RequestPipeline requestPipeline) {
+        if (!isRunning.compareAndSet(false, true)) return;
 
-                while (isRunning.get()) {
-                    try {
-                        Socket clientSocket = serverSocket.accept();
-                        new ClientHandler(clientSocket).start();
-                    } catch (SocketException e) {
-                        if (!isRunning.get()) {
-                            System.out.println("Server stopped normally");
+        pipeline = requestPipeline;
+        accepting = true;
+        connections.registerMBean();
+        Runnable acceptLoop = switch (mode) {
+            case THREAD_PER_CONNECTION -> Server::runThreadPerConnection;
+            case NIO -> Server::runNio;
+            case VIRTUAL_THREAD -> Server::runVirtualThread;
+            case MULTI_ACCEPTOR -> Server::runMultiAcceptor;
+        };
+        serverThread = new Thread(acceptLoop);
+        serverThread.start();
+    }
+
+    private static void runThreadPerConnection() {
+        try (ServerSocket ss = new ServerSocket(PORT, backlog())) {
+            serverSocket = ss;
+            Log.info("Server started on port {}", PORT);
+
+            while (accepting) {
+                try {
+                    Socket clientSocket = serverSocket.accept();
+                    new Thread(new ClientHandler(clientSocket)).start();
+                } catch (SocketException e) {
+                    if (!accepting) {
+                        Log.info("Server stopped normally");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (accepting) {
+                Log.error("Server exception: {}", e.getMessage());
+            }
+        } finally {
+            drainConnections();
+            isRunning.set(false);
+        }
+    }
+
+    private static void runVirtualThread() {
+        int maxConnections = Integer.parseInt(System.getenv().getOrDefault("MAX_CONNECTIONS", "10000"));
+        // A permit is taken before accept, so at the cap new clients wait in the listen backlog
+        Semaphore connectionPermits = new Semaphore(maxConnections);
+        ExecutorService executor = newConnectionExecutor(maxConnections);
+
+        try (ServerSocket ss = new ServerSocket(PORT, backlog())) {
+            serverSocket = ss;
+            Log.info("Server started on port {} (virtual threads, max {} connections)", PORT, maxConnections);
+
+            while (accepting) {
+                if (!connectionPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+                try {
+                    Socket clientSocket = serverSocket.accept();
+                    // Built (and registered) here, so a drain that starts before the task runs still sees it
+                    ClientHandler handler = new ClientHandler(clientSocket);
+                    executor.execute(() -> {
+                        try {
+                            handler.run();
+                        } finally {
+                            connectionPermits.release();
                         }
+                    });
+                } catch (SocketException e) {
+                    connectionPermits.release();
+                    if (!accepting) {
+                        Log.info("Server stopped normally");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.info("Server stopped normally");
+        } catch (IOException e) {
+            if (accepting) {
+                Log.error("Server exception: {}", e.getMessage());
+            }
+        } finally {
+            drainConnections();
+            executor.shutdown();
+            isRunning.set(false);
+        }
+    }
+
+    // Virtual threads only exist from Java 21, the Java 17 baseline gets a bounded platform pool instead
+    private static ExecutorService newConnectionExecutor(int maxConnections) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConnections, maxConnections,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    // Pending connections the kernel queues per listening socket, ACCEPT_BACKLOG
+    private static int backlog() {
+        return Integer.parseInt(System.getenv().getOrDefault("ACCEPT_BACKLOG", "1024"));
+    }
+
+    private static void runNio() {
+        int loopCount = Integer.parseInt(System.getenv().getOrDefault("EVENT_LOOP_THREADS",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        NioEventLoop[] eventLoops = new NioEventLoop[loopCount];
+
+        try (ServerSocketChannel ssc = openServerChannel(false)) {
+            startEventLoops(eventLoops, "nio-event-loop-");
+            Log.info("Server started on port {} (NIO, {} event loops)", PORT, loopCount);
+            acceptInto(ssc::accept, eventLoops);
+        } catch (IOException e) {
+            if (accepting) {
+                Log.error("Server exception: {}", e.getMessage());
+            }
+        } finally {
+            drainConnections();
+            shutdownEventLoops(eventLoops);
+            isRunning.set(false);
+        }
+    }
+
+    // One accept loop is a bottleneck for short-lived connections. With SO_REUSEPORT (Linux) every acceptor
+    // binds its own socket and the kernel spreads new connections across them; elsewhere the acceptors
+    // share one socket. Each acceptor registers only with its own event loops, so the sets never contend
+    private static void runMultiAcceptor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int acceptorCount = Integer.parseInt(System.getenv().getOrDefault("ACCEPTOR_THREADS", String.valueOf(cores)));
+        int loopCount = Integer.parseInt(System.getenv().getOrDefault("EVENT_LOOP_THREADS", String.valueOf(cores)));
+        int loopsPerAcceptor = Math.max(1, loopCount / acceptorCount);
+        NioEventLoop[][] eventLoops = new NioEventLoop[acceptorCount][loopsPerAcceptor];
+        Thread[] acceptors = new Thread[acceptorCount];
+
+        try {
+            boolean reusePort = supportsReusePort();
+            ServerSocketChannel shared = reusePort ? null : openServerChannel(false);
+            for (int i = 0; i < acceptorCount; i++) {
+                ServerSocketChannel ssc = reusePort ? openServerChannel(true) : shared;
+                NioEventLoop[] workers = eventLoops[i];
+                startEventLoops(workers, "acceptor-" + i + "-event-loop-");
+                acceptors[i] = new Thread(() -> acceptInto(ssc::accept, workers), "acceptor-" + i);
+                acceptors[i].start();
+            }
+            Log.info("Server started on port {} ({})", PORT, acceptorCount + " acceptors, "
+                    + (reusePort ? "SO_REUSEPORT" : "shared socket") + ", " + loopsPerAcceptor + " event loops each");
+            for (Thread acceptor : acceptors) {
+                acceptor.join();
+            }
+        } catch (IOException e) {
+            if (accepting) {
+                Log.error("Server exception: {}", e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // A failed bind leaves the other acceptors running, so close every socket before draining
+            closeServerChannels();
+            for (Thread acceptor : acceptors) {
+                if (acceptor != null) {
+                    try {
+                        acceptor.join(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
                     }
                 }
+            }
+            drainConnections();
+            for (NioEventLoop[] workers : eventLoops) {
+                shutdownEventLoops(workers);
+            }
+            isRunning.set(false);
+        }
+    }
+
+    // SO_REUSEPORT only balances accepts across sockets on Linux; macOS accepts the option without spreading load
+    private static boolean supportsReusePort() throws IOException {
+        if (!System.getProperty("os.name").toLowerCase().contains("linux")) return false;
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    private static ServerSocketChannel openServerChannel(boolean reusePort) throws IOException {
+        ServerSocketChannel ssc = ServerSocketChannel.open();
+        try {
+            ssc.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (reusePort) {
+                ssc.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            ssc.bind(new InetSocketAddress(PORT), backlog());
+        } catch (IOException e) {
+            ssc.close();
+            throw e;
+        }
+        serverChannels.add(ssc);
+        return ssc;
+    }
+
+    private static void startEventLoops(NioEventLoop[] eventLoops, String namePrefix) throws IOException {
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new NioEventLoop(namePrefix + i, connections, pipeline);
+            eventLoops[i].start();
+        }
+    }
+
+    // ServerSocketChannel::accept; a seam so tests can make accept fail
+    @FunctionalInterface
+    interface ChannelAcceptor {
+        SocketChannel accept() throws IOException;
+    }
+
+    // Blocking accept, connections are spread round-robin over the given event loops. Only a closed listening
+    // channel ends the loop; any other failure (out of file descriptors, a client that reset before it was
+    // accepted) costs that one connection and the server keeps accepting
+    static void acceptInto(ChannelAcceptor acceptor, NioEventLoop[] eventLoops) {
+        int next = 0;
+        while (accepting) {
+            try {
+                SocketChannel clientChannel = acceptor.accept();
+                eventLoops[next].register(clientChannel);
+                next = (next + 1) % eventLoops.length;
+            } catch (ClosedChannelException e) {
+                if (!accepting) {
+                    Log.info("Server stopped normally");
+                } else {
+                    Log.error("Server channel closed while accepting on port {}", PORT);
+                }
+                break;
             } catch (IOException e) {
-                if (isRunning.get()) {
-                    System.err.println("Server exception: " + e.getMessage());
+                if (!accepting) break;
+                Log.error("Error accepting client: {}", e.getMessage());
+                // Errors such as EMFILE repeat until a descriptor is freed; back off instead of spinning
+                try {
+                    Thread.sleep(ACCEPT_ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
-            } finally {
-                isRunning.set(false);
             }
-        });
-        serverThread.start();
+        }
     }
 
+    private static void shutdownEventLoops(NioEventLoop[] eventLoops) {
+        for (NioEventLoop eventLoop : eventLoops) {
+            if (eventLoop != null) {
+                eventLoop.shutdown();
+            }
+        }
+        for (NioEventLoop eventLoop : eventLoops) {
+            if (eventLoop != null) {
+                try {
+                    eventLoop.awaitTermination(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void closeServerChannels() {
+        for (ServerSocketChannel ssc : serverChannels) {
+            try {
+                ssc.close();
+            } catch (IOException e) {
+                Log.error("Error closing server: {}", e.getMessage());
+            }
+        }
+        serverChannels.clear();
+    }
+
+    public static ConnectionRegistryMBean stats() {
+        return connections;
+    }
+
+    // Stops accepting and closes every open connection right away
     public static void stop() {
-        if (!isRunning.get()) return;
+        stop(Duration.ZERO);
+    }
+
+    // Graceful drain: stop accepting, let connections answer the requests they already read
+    // and close by themselves until the deadline, then force-close the rest
+    public static void stop(Duration drainTimeout) {
+        if (!isRunning.get() || !accepting) return;
 
-        isRunning.set(false);
+        drainDeadlineNanos = System.nanoTime() + drainTimeout.toNanos();
+        accepting = false;
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
         } catch (IOException e) {
-            System.err.println("Error closing server: " + e.getMessage());
+            Log.error("Error closing server: {}", e.getMessage());
+        }
+        closeServerChannels();
+        // The accept thread drains; wait for it so a following start() cannot race with it
+        try {
+            if (serverThread != null) {
+                serverThread.join(drainTimeout.toMillis() + 5000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    // Client handling thread
-    private static class ClientHandler extends Thread {
+    private static void drainConnections() {
+        int open = connections.getActiveConnections();
+        if (open > 0 && !connections.drain(drainDeadlineNanos)) {
+            Log.warn("Drain deadline reached, force-closed remaining of {} connections", open);
+        }
+    }
+
+    // Client handling task, run on a dedicated or virtual thread depending on the mode
+    private static class ClientHandler implements Runnable, ConnectionRegistry.TrackedConnection {
         private final Socket clientSocket;
 
+        // Registered on the accept thread, so a drain that starts right after accept still sees it
         public ClientHandler(Socket socket) {
             this.clientSocket = socket;
+            connections.register(this);
+        }
+
+        // Reads then hit end of stream once buffered requests are answered, so the handler exits normally
+        @Override
+        public void drain() {
+            try {
+                clientSocket.shutdownInput();
+            } catch (IOException e) {
+                forceClose();
+            }
         }
 
+        @Override
+        public void forceClose() {
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                Log.error("Error closing socket: {}", e.getMessage());
+            }
+        }
+
+        @Override
         public void run() {
-            try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(clientSocket.getInputStream()));
-                 PrintWriter out = new PrintWriter(
-                         clientSocket.getOutputStream(), true)) {
-
-                System.out.println("Client connected: " + clientSocket.getInetAddress());
-
-                // Continuously read client requests
-                String request;
-                while ((request = in.readLine()) != null) {
-                    if (request.isEmpty() || "exit".equalsIgnoreCase(request.trim())) {
-                        break;
-                    }
-                    System.out.println("Received request: " + request);
+            try (InputStream input = new BufferedInputStream(connections.countingInput(clientSocket.getInputStream()));
+                 OutputStream output = new BufferedOutputStream(connections.countingOutput(clientSocket.getOutputStream()))) {
 
-                    // Process request and send response
-                    String response = request.toUpperCase();
-                    out.println(response);
-                    System.out.println("Sent response: " + response);
+                Log.info("Client connected: {}", clientSocket.getInetAddress());
+
+                // Framed clients announce themselves with a magic header, anything else is a text client
+                if (Frames.readMagic(input)) {
+                    serveFrames(new DataInputStream(input), new DataOutputStream(output));
+                } else {
+                    serveLines(new BufferedReader(new InputStreamReader(input)), new PrintWriter(output, false));
                 }
-                System.out.println("Client Connection closed");
+                Log.info("Client Connection closed");
             } catch (IOException e) {
-                System.err.println("Error handling client: " + e.getMessage());
+                Log.error("Error handling client: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                Log.error("Error processing request: {}", e.getMessage());
             } finally {
+                connections.deregister(this);
+                forceClose();
+            }
+        }
+
+        private void serveLines(BufferedReader in, PrintWriter out) throws IOException {
+            // Continuously read client requests
+            String request;
+            while ((request = in.readLine()) != null) {
+                if (request.isEmpty() || "exit".equalsIgnoreCase(request.trim())) {
+                    break;
+                }
+                // Off unless LOG_LEVEL=TRACE, and then only for a sample of messages
+                boolean traced = Log.traceSampled();
+                if (traced) {
+                    Log.trace("Received request: {}", request);
+                }
+
+                // Process request and send response; this thread serves only this client, so the stages run inline
+                String response = pipeline.process(request);
+                out.println(response);
+                connections.recordMessages(1, 1);
+                // Pipelined clients send many lines at once: answer all buffered ones, then flush once
+                if (!in.ready()) {
+                    out.flush();
+                }
+                if (traced) {
+                    Log.trace("Sent response: {}", response);
+                }
+            }
+            out.flush();
+        }
+
+        private void serveFrames(DataInputStream in, DataOutputStream out) throws IOException {
+            // Payloads are read in one bulk readFully into a buffer that only grows to the largest frame seen
+            byte[] payload = new byte[1024];
+            ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+            while (true) {
+                int length;
                 try {
-                    clientSocket.close();
-                } catch (IOException e) {
-                    System.err.println("Error closing socket: " + e.getMessage());
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte opcode = in.readByte();
+                if (opcode == Frames.CLOSE) break;
+                if (!Frames.isValid(opcode, length)) {
+                    byte[] reason = ("Invalid frame: opcode " + opcode + ", length " + length)
+                            .getBytes(StandardCharsets.UTF_8);
+                    Frames.write(out, Frames.ERROR, reason, reason.length);
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                    payloadBuffer = ByteBuffer.wrap(payload);
+                }
+                in.readFully(payload, 0, length);
+
+                // Process request and send response: TEXT payloads go through the pipeline, BINARY is uppercased as bytes
+                boolean ascii = (opcode == Frames.BINARY || pipeline.isUppercase())
+                        && AsciiLines.toUpperCaseInPlace(payloadBuffer, 0, length);
+                if (ascii || opcode == Frames.BINARY) {
+                    Frames.write(out, opcode, payload, length);
+                } else {
+                    byte[] response = pipeline.process(new String(payload, 0, length, StandardCharsets.UTF_8))
+                            .getBytes(StandardCharsets.UTF_8);
+                    Frames.write(out, Frames.TEXT, response, response.length);
+                }
+                connections.recordMessages(1, 1);
+                if (in.available() == 0) {
+                    out.flush();
                 }
             }
+            out.flush();
         }
     }
 }
-
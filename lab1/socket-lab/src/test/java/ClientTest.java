@@ -7,6 +7,8 @@
 import org.junit.jupiter.api.*;
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,6 +85,57 @@ class ClientTest {
         );
     }
 
+    @Test
+    void testPipelinedClientMatchesResponsesInOrder() throws Exception {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add("pipelined message " + i);
+        }
+
+        try (PipelinedClient client = new PipelinedClient(TEST_HOST, TEST_PORT, 64)) {
+            List<String> responses = client.sendAll(messages);
+
+            assertEquals(messages.size(), responses.size());
+            for (int i = 0; i < messages.size(); i++) {
+                assertEquals(messages.get(i).toUpperCase(), responses.get(i),
+                        "Response " + i + " should match its request");
+            }
+        }
+    }
+
+    @Test
+    void testFramedClientTextAndBinary() throws Exception {
+        try (FramedClient client = new FramedClient(TEST_HOST, TEST_PORT)) {
+            // Payloads may contain newlines
+            assertEquals("MULTI\nLINE", client.sendText("multi\nline"));
+            assertEquals("STRASSE", client.sendText("stra\u00dfe"));
+
+            byte[] binary = new byte[256];
+            for (int i = 0; i < binary.length; i++) {
+                binary[i] = (byte) i;
+            }
+            byte[] expected = binary.clone();
+            for (int i = 'a'; i <= 'z'; i++) {
+                expected[i] = (byte) (i - 32);
+            }
+            assertArrayEquals(expected, client.sendBinary(binary));
+        }
+    }
+
+    @Test
+    void testLoadGeneratorModes() throws Exception {
+        for (LoadGenerator.LoopMode loopMode : LoadGenerator.LoopMode.values()) {
+            LoadGenerator.Config config = new LoadGenerator.Config(TEST_HOST, TEST_PORT, 4, loopMode,
+                    2_000, 100, 500, "load test");
+
+            LoadGenerator.Result result = LoadGenerator.run(config);
+
+            assertEquals(0, result.errors(), loopMode + " loop should not fail");
+            assertTrue(result.requests() > 0, loopMode + " loop should complete requests");
+            assertTrue(result.histogram().getValueAtPercentile(99) > 0);
+        }
+    }
+
     @Test
     void testErrorHandlingForInvalidConnections() throws Exception {
         // stop the server to test error handling
@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketBoundariesAreContiguous() {
+        for (int index = 0; index < LatencyHistogram.indexOf(1L << 40); index++) {
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.lowestValueAt(index)));
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestValueAt(index)));
+            assertEquals(LatencyHistogram.highestValueAt(index) + 1, LatencyHistogram.lowestValueAt(index + 1));
+        }
+    }
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.recordValue(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 / 64.0);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 / 64.0);
+        assertEquals(99_900_000, histogram.getValueAtPercentile(99.9), 99_900_000 / 64.0);
+        assertEquals(100_000_000, histogram.getMaxValue());
+    }
+
+    @Test
+    void testCoordinatedOmissionCorrection() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.recordValueWithExpectedInterval(1_000, 1_000);
+        }
+        // One 100x stall stands for the 99 requests that could not be sent meanwhile
+        histogram.recordValueWithExpectedInterval(100_000, 1_000);
+
+        assertEquals(199, histogram.getTotalCount());
+        assertTrue(histogram.getValueAtPercentile(75) > 40_000,
+                "A quarter of the corrected samples should reflect the stall");
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.*;
+import java.io.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTest {
+    private PrintStream originalOut;
+    private ByteArrayOutputStream captured;
+
+    @BeforeEach
+    void captureOutput() {
+        Log.flush();
+        originalOut = System.out;
+        captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        Log.flush();
+        System.setOut(originalOut);
+        Log.setLevel(Log.Level.INFO);
+        Log.setTraceSample(100);
+    }
+
+    @Test
+    void testRecordsAreWrittenInOrderByTheWriterThread() {
+        for (int i = 0; i < 1000; i++) {
+            Log.info("record {} of {}", i, 1000);
+        }
+        Log.flush();
+
+        String thread = Thread.currentThread().getName();
+        String[] lines = captured.toString().lines().filter(line -> line.contains(" record ")).toArray(String[]::new);
+        assertEquals(1000, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].endsWith("INFO [" + thread + "] record " + i + " of 1000"), lines[i]);
+        }
+    }
+
+    @Test
+    void testLevelGatingAndTraceSampling() {
+        Log.setLevel(Log.Level.WARN);
+        Log.info("hidden {}", "info");
+        assertFalse(Log.isEnabled(Log.Level.INFO));
+        assertFalse(Log.traceSampled(), "Tracing is off below TRACE level");
+
+        Log.setLevel(Log.Level.TRACE);
+        Log.setTraceSample(1);
+        assertTrue(Log.traceSampled(), "A sample of 1 traces every message");
+        Log.trace("shown {}", "trace");
+        Log.flush();
+
+        String output = captured.toString();
+        assertFalse(output.contains("hidden info"));
+        assertTrue(output.contains("TRACE [" + Thread.currentThread().getName() + "] shown trace"));
+    }
+}
@@ -1,6 +1,15 @@
 import org.junit.jupiter.api.*;
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ServerTest {
@@ -12,7 +21,16 @@ public class ServerTest {
     void startServer() throws InterruptedException {
         // Start server in separate thread
         new Thread(() -> Server.start()).start();
+        waitForServerStart();
+    }
+
+    private void restartServer(Server.Mode mode) throws InterruptedException {
+        Server.stop();
+        Server.start(mode);
+        waitForServerStart();
+    }
 
+    private void waitForServerStart() throws InterruptedException {
         // Wait for server initialization
         int retries = 0;
         while (retries++ < 50) { // 5 second timeout
@@ -74,4 +92,280 @@ public class ServerTest {
                         || exception.getMessage().contains("connect timed out"),
                 "Should throw proper connection error");
     }
+
+    @Test
+    void testNioModeMessageSendingReceiving() throws Exception {
+        restartServer(Server.Mode.NIO);
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(
+                     socket.getOutputStream(), true)) {
+
+            out.println("nio test");
+            assertEquals("NIO TEST", in.readLine(),
+                    "Should receive uppercase response");
+
+            // Several lines in one write are answered in order
+            out.print("first\nsecond\n");
+            out.flush();
+            assertEquals("FIRST", in.readLine());
+            assertEquals("SECOND", in.readLine());
+
+            // exit closes the connection
+            out.println("exit");
+            assertNull(in.readLine(), "Server should close connection on exit");
+        }
+    }
+
+    @Test
+    void testNioModeByteLevelProcessing() throws Exception {
+        restartServer(Server.Mode.NIO);
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), "UTF-8"));
+             OutputStream out = socket.getOutputStream()) {
+
+            // ASCII, CRLF and non-ASCII lines in one write keep their order
+            out.write("ascii\r\nstra\u00dfe caf\u00e9\nmixed Case 123\n".getBytes("UTF-8"));
+            out.flush();
+            assertEquals("ASCII", in.readLine());
+            assertEquals("STRASSE CAF\u00c9", in.readLine(), "Non-ASCII should use full Unicode uppercase");
+            assertEquals("MIXED CASE 123", in.readLine());
+
+            // A line split across several writes is reassembled
+            out.write("split ".getBytes("UTF-8"));
+            out.flush();
+            Thread.sleep(50);
+            out.write("line\n".getBytes("UTF-8"));
+            out.flush();
+            assertEquals("SPLIT LINE", in.readLine());
+
+            out.write("  ExIt \n".getBytes("UTF-8"));
+            out.flush();
+            assertNull(in.readLine(), "Server should close connection on exit");
+        }
+    }
+
+    @Test
+    void testNioModeConcurrentClients() throws Exception {
+        restartServer(Server.Mode.NIO);
+
+        int clients = 200;
+        Socket[] sockets = new Socket[clients];
+        try {
+            for (int i = 0; i < clients; i++) {
+                sockets[i] = new Socket(TEST_HOST, TEST_PORT);
+            }
+            for (int i = 0; i < clients; i++) {
+                PrintWriter out = new PrintWriter(sockets[i].getOutputStream(), true);
+                out.println("client " + i);
+            }
+            for (int i = 0; i < clients; i++) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(sockets[i].getInputStream()));
+                assertEquals("CLIENT " + i, in.readLine());
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) socket.close();
+            }
+        }
+    }
+
+    @Test
+    void testVirtualThreadModeMessageSendingReceiving() throws Exception {
+        restartServer(Server.Mode.VIRTUAL_THREAD);
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(
+                     socket.getOutputStream(), true)) {
+
+            out.println("virtual thread test");
+            assertEquals("VIRTUAL THREAD TEST", in.readLine(),
+                    "Should receive uppercase response");
+
+            out.println("exit");
+            assertNull(in.readLine(), "Server should close connection on exit");
+        }
+    }
+
+    @Test
+    void testMultiAcceptorModeShortLivedConnections() throws Exception {
+        restartServer(Server.Mode.MULTI_ACCEPTOR);
+
+        // Connect, one line, exit: the pattern that makes a single accept loop the bottleneck
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int id = i;
+                responses.add(clients.submit(() -> {
+                    try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+                         BufferedReader in = new BufferedReader(
+                                 new InputStreamReader(socket.getInputStream()));
+                         PrintWriter out = new PrintWriter(
+                                 socket.getOutputStream(), true)) {
+                        out.println("short " + id);
+                        out.println("exit");
+                        String response = in.readLine();
+                        assertNull(in.readLine(), "Server should close connection on exit");
+                        return response;
+                    }
+                }));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                assertEquals("SHORT " + i, responses.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    void testNioModeFramedAndTextClientsShareThePort() throws Exception {
+        restartServer(Server.Mode.NIO);
+
+        try (FramedClient framed = new FramedClient(TEST_HOST, TEST_PORT);
+             Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(
+                     socket.getOutputStream(), true)) {
+
+            assertEquals("FRAMED\nTEXT", framed.sendText("framed\ntext"));
+            assertEquals("CAF\u00c9", framed.sendText("caf\u00e9"));
+
+            // Larger than the event loop read buffer
+            String large = "x".repeat(200_000);
+            assertEquals(large.toUpperCase(), framed.sendText(large));
+            assertArrayEquals(new byte[]{'A', 0, (byte) 0xff}, framed.sendBinary(new byte[]{'a', 0, (byte) 0xff}));
+
+            out.println("legacy text");
+            assertEquals("LEGACY TEXT", in.readLine());
+        }
+    }
+
+    @Test
+    void testCustomPipelineOnWorkersKeepsRequestOrder() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        // Earlier requests sleep longer, so the workers finish them out of order
+        RequestPipeline squares = RequestPipeline.decodeWith(Integer::parseInt)
+                .then(n -> {
+                    try {
+                        Thread.sleep(20 - n % 20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return (long) n * n;
+                })
+                .encodeWith(square -> "SQUARE " + square)
+                .onWorkers(workers);
+        try {
+            for (Server.Mode mode : Server.Mode.values()) {
+                Server.stop();
+                Server.start(mode, squares);
+                waitForServerStart();
+
+                try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+                     BufferedReader in = new BufferedReader(
+                             new InputStreamReader(socket.getInputStream()));
+                     PrintWriter out = new PrintWriter(
+                             socket.getOutputStream(), false)) {
+
+                    for (int i = 0; i < 100; i++) {
+                        out.println(i);
+                    }
+                    out.flush();
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals("SQUARE " + (long) i * i, in.readLine(), mode + " response " + i);
+                    }
+
+                    out.println("exit");
+                    out.flush();
+                    assertNull(in.readLine(), mode + " should close connection on exit");
+                }
+            }
+            try (FramedClient framed = new FramedClient(TEST_HOST, TEST_PORT)) {
+                assertEquals("SQUARE 49", framed.sendText("7"));
+            }
+        } finally {
+            Server.stop();
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    void testConnectionStatsAndGracefulDrain() throws Exception {
+        for (Server.Mode mode : Server.Mode.values()) {
+            restartServer(mode);
+            ConnectionRegistryMBean stats = Server.stats();
+            long messagesBefore = stats.getMessagesIn();
+            long bytesBefore = stats.getBytesOut();
+
+            try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream()));
+                 PrintWriter out = new PrintWriter(
+                         socket.getOutputStream(), true)) {
+
+                out.println("count me");
+                assertEquals("COUNT ME", in.readLine());
+                // The startup probe connection may still be closing, so at least ours
+                assertTrue(stats.getActiveConnections() >= 1, mode + " should track the live connection");
+                assertEquals(messagesBefore + 1, stats.getMessagesIn());
+                assertTrue(stats.getBytesOut() >= bytesBefore + "COUNT ME".length());
+
+                // An idle connection is closed by the drain long before the deadline
+                long start = System.nanoTime();
+                Server.stop(Duration.ofSeconds(10));
+                assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos(),
+                        mode + " drain should not wait for idle connections");
+                assertNull(in.readLine(), mode + " should close the connection after draining");
+                assertEquals(0, stats.getActiveConnections());
+            }
+        }
+    }
+
+    @Test
+    void testDrainForceClosesAtDeadline() throws Exception {
+        restartServer(Server.Mode.NIO);
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+             OutputStream out = socket.getOutputStream()) {
+
+            // A half-sent request keeps the connection busy until the deadline
+            out.write("half a requ".getBytes());
+            out.flush();
+            Thread.sleep(100);
+
+            long start = System.nanoTime();
+            Server.stop(Duration.ofMillis(500));
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(500).toNanos(),
+                    "Drain should wait for the in-flight request until the deadline");
+            assertNull(in.readLine(), "Connection should be force-closed");
+            assertEquals(0, Server.stats().getActiveConnections());
+        }
+    }
+
+    @Test
+    void testAcceptLoopSurvivesAcceptErrors() {
+        // The server is running, so the accept loop is meant to keep going; the first accept fails as with EMFILE
+        AtomicInteger accepts = new AtomicInteger();
+        Server.ChannelAcceptor failing = () -> {
+            if (accepts.incrementAndGet() == 1) {
+                throw new IOException("Too many open files");
+            }
+            throw new ClosedChannelException();
+        };
+
+        // Only the closed channel ends the loop
+        Server.acceptInto(failing, new NioEventLoop[1]);
+        assertEquals(2, accepts.get());
+    }
 }